@@ -0,0 +1,99 @@
+package com.itm.space.backendbenchmarks;
+
+import com.itm.space.backendresources.security.KeycloakJwtAuthenticationConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JWT-to-authorities conversion installed by {@code SecurityConfiguration}.
+ * {@code repeatedToken} is a client reusing its access token; {@code distinctTokens} cycles through more
+ * tokens than the per-token cache holds, so every call misses it and only the role-list cache helps.
+ * {@code perRequestConversion} is the conversion it replaced, as the baseline for {@code -prof gc}'s
+ * allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthenticationConversionBenchmark {
+    private static final int CACHED_TOKENS = 1024;
+    private static final int DISTINCT_TOKENS = 4 * CACHED_TOKENS;
+
+    @Param({"3", "20"})
+    private int roles;
+
+    private KeycloakJwtAuthenticationConverter converter;
+    private Jwt[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        converter = new KeycloakJwtAuthenticationConverter(CACHED_TOKENS, 64);
+        List<String> realmRoles = new ArrayList<>(roles);
+        for (int i = 0; i < roles; i++) {
+            realmRoles.add("role-" + i);
+        }
+        tokens = new Jwt[DISTINCT_TOKENS];
+        Instant issuedAt = Instant.now();
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            tokens[i] = Jwt.withTokenValue("token-" + i)
+                    .header("alg", "RS256")
+                    .jti(UUID.randomUUID().toString())
+                    .subject(UUID.randomUUID().toString())
+                    .issuedAt(issuedAt)
+                    .expiresAt(issuedAt.plusSeconds(3600))
+                    .claim("realm_access", Map.of("roles", List.copyOf(realmRoles)))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken repeatedToken() {
+        return converter.convert(tokens[0]);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken distinctTokens() {
+        Jwt jwt = tokens[next];
+        next = (next + 1) % DISTINCT_TOKENS;
+        return converter.convert(jwt);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public AbstractAuthenticationToken perRequestConversion() {
+        Jwt jwt = tokens[0];
+        Collection<GrantedAuthority> authorities = new ArrayList<>();
+        JwtAuthenticationToken authenticationToken = new JwtAuthenticationToken(jwt, authorities);
+        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+        List<String> realmRoles = (List<String>) realmAccess.get("roles");
+        for (String role : realmRoles) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+        }
+        return new JwtAuthenticationToken(jwt, authorities, authenticationToken.getName());
+    }
+}
@@ -0,0 +1,76 @@
+package com.itm.space.backendbenchmarks;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.mapper.UserMapperImpl;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserMapper#userRepresentationToUserResponse} as used by {@code GET /api/users/{id}}.
+ * A realm user typically has a handful of roles and groups; the larger sizes cover administrative accounts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMapperBenchmark {
+    @Param({"1", "10", "50"})
+    private int roles;
+    @Param({"1", "10", "50"})
+    private int groups;
+
+    private final UserMapper userMapper = new UserMapperImpl();
+    private UserRepresentation user;
+    private List<RoleRepresentation> roleList;
+    private List<GroupRepresentation> groupList;
+
+    @Setup
+    public void setUp() {
+        user = new UserRepresentation();
+        user.setId(UUID.randomUUID().toString());
+        user.setUsername("moderator");
+        user.setFirstName("Moderator");
+        user.setLastName("Moderatorov");
+        user.setEmail("moderator@itm.space");
+        roleList = new ArrayList<>(roles);
+        for (int i = 0; i < roles; i++) {
+            RoleRepresentation role = new RoleRepresentation();
+            role.setId(UUID.randomUUID().toString());
+            role.setName("role-" + i);
+            roleList.add(role);
+        }
+        groupList = new ArrayList<>(groups);
+        for (int i = 0; i < groups; i++) {
+            GroupRepresentation group = new GroupRepresentation();
+            group.setId(UUID.randomUUID().toString());
+            group.setName("group-" + i);
+            group.setPath("/group-" + i);
+            groupList.add(group);
+        }
+    }
+
+    @Benchmark
+    public UserResponse userRepresentationToUserResponse() {
+        return userMapper.userRepresentationToUserResponse(user, roleList, groupList);
+    }
+}
@@ -0,0 +1,71 @@
+package com.itm.space.backendbenchmarks;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Bean Validation of {@link UserRequest}, and the {@code .+@.+\..+} email pattern on its own.
+ * The adversarial emails contain many {@code @} signs and no dot, which makes the pattern backtrack
+ * through every split before failing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserRequestValidationBenchmark {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(".+@.+\\..+");
+
+    @Param({"valid", "adversarial-64", "adversarial-256", "adversarial-1024"})
+    private String email;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserRequest request;
+    private String emailValue;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        emailValue = email.equals("valid")
+                ? "moderator@itm.space"
+                : "a@".repeat(Integer.parseInt(email.substring("adversarial-".length())) / 2);
+        request = new UserRequest("moderator", emailValue, "password", "Moderator", "Moderatorov");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequest>> validate() {
+        return validator.validate(request);
+    }
+
+    @Benchmark
+    public boolean emailPattern() {
+        return EMAIL_PATTERN.matcher(emailValue).matches();
+    }
+}
@@ -0,0 +1,54 @@
+package com.itm.space.backendbenchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.itm.space.backendresources.api.response.UserResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of {@link UserResponse}, the body of {@code GET /api/users/{id}}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserResponseSerializationBenchmark {
+    @Param({"1", "10", "50"})
+    private int entries;
+
+    private final ObjectWriter writer = new ObjectMapper().writerFor(UserResponse.class);
+    private UserResponse response;
+
+    @Setup
+    public void setUp() {
+        List<String> roles = new ArrayList<>(entries);
+        List<String> groups = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            roles.add("role-" + i);
+            groups.add("group-" + i);
+        }
+        response = new UserResponse("Moderator", "Moderatorov", "moderator@itm.space", roles, groups);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws JsonProcessingException {
+        return writer.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,39 @@
+package com.itm.space.backend.client.configuration;
+
+import com.itm.space.backend.client.filter.RoutePoolNettyRoutingFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+/**
+ * Routes through {@link RoutePoolNettyRoutingFilter} instead of the gateway's own routing filter. Switching
+ * that off with {@code spring.cloud.gateway.global-filter.netty-routing.enabled=false} also drops the
+ * gateway's response writer, so it is registered here as well.
+ */
+@Configuration
+public class RoutingConfiguration {
+
+	@Bean
+	public RoutePoolNettyRoutingFilter routePoolNettyRoutingFilter(HttpClient httpClient,
+																   ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+																   HttpClientProperties httpClientProperties,
+																   ServerProperties serverProperties,
+																   List<HttpClientCustomizer> customizers) {
+		return new RoutePoolNettyRoutingFilter(httpClient, headersFilters, httpClientProperties, serverProperties,
+				customizers);
+	}
+
+	@Bean
+	public NettyWriteResponseFilter nettyWriteResponseFilter(GatewayProperties gatewayProperties) {
+		return new NettyWriteResponseFilter(gatewayProperties.getStreamingMediaTypes());
+	}
+}
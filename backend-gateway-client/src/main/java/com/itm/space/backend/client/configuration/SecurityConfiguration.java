@@ -0,0 +1,28 @@
+package com.itm.space.backend.client.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+@Configuration
+@EnableWebFluxSecurity
+public class SecurityConfiguration {
+
+	/**
+	 * Same login flow as Spring Boot's default OAuth2 client chain, except that health and metrics scrapes
+	 * do not need a session.
+	 */
+	@Bean
+	public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+		http
+				.authorizeExchange(exchanges -> exchanges
+						.pathMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+						.anyExchange().authenticated())
+				.oauth2Login()
+				.and()
+				.oauth2Client();
+		return http.build();
+	}
+}
@@ -0,0 +1,161 @@
+package com.itm.space.backend.client.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process token bucket for {@code RequestRateLimiter}, so the gateway can limit requests without Redis.
+ * Limits are configured per route through the filter's {@code local-rate-limiter.*} args; a route without
+ * them gets the {@link Config} defaults. Each node limits on its own: with N gateway instances a client
+ * can get up to N times the configured rate.
+ * <p>
+ * A bucket is a single {@link AtomicLong} holding the time at which it will be full again (GCRA), updated
+ * with compare-and-set. Buckets are dropped once idle long enough to have refilled completely, so eviction
+ * never hands a client extra tokens; {@code gateway.rate-limiter.maximum-keys} caps the number kept.
+ * <p>
+ * Denied requests get {@code Retry-After} with the seconds until enough tokens are available.
+ */
+@Component
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+	public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+	public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+	public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+	public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final Cache<BucketKey, Bucket> buckets;
+	private final Config defaultConfig = new Config();
+
+	public LocalRateLimiter(ConfigurationService configurationService,
+							@Value("${gateway.rate-limiter.maximum-keys:100000}") long maximumKeys) {
+		super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+		this.buckets = Caffeine.newBuilder()
+				.maximumSize(maximumKeys)
+				.expireAfter(new UntilFull())
+				.build();
+	}
+
+	@Override
+	public Mono<Response> isAllowed(String routeId, String id) {
+		Config config = getConfig().getOrDefault(routeId, defaultConfig);
+		long interval = NANOS_PER_SECOND / config.getReplenishRate();
+		long capacity = interval * config.getBurstCapacity();
+		long cost = interval * config.getRequestedTokens();
+		Bucket bucket = buckets.get(new BucketKey(routeId, id), key -> new Bucket(capacity));
+
+		long now = System.nanoTime();
+		long fullAt;
+		long nextFullAt;
+		do {
+			fullAt = bucket.fullAt.get();
+			nextFullAt = Math.max(fullAt, now) + cost;
+			if (nextFullAt - now > capacity) {
+				long waitNanos = nextFullAt - now - capacity;
+				return Mono.just(new Response(false, headers(config, 0, waitNanos)));
+			}
+		} while (!bucket.fullAt.compareAndSet(fullAt, nextFullAt));
+
+		long remaining = (capacity - (nextFullAt - now)) / interval;
+		return Mono.just(new Response(true, headers(config, remaining, 0)));
+	}
+
+	private static Map<String, String> headers(Config config, long remaining, long waitNanos) {
+		Map<String, String> headers = new HashMap<>();
+		headers.put(REMAINING_HEADER, String.valueOf(remaining));
+		headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+		headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+		if (waitNanos > 0) {
+			// Retry-After is in whole seconds; rounding down would invite a retry that is denied again
+			long retryAfter = (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+			headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+		}
+		return headers;
+	}
+
+	private record BucketKey(String routeId, String id) {
+	}
+
+	private static final class Bucket {
+		private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE / 2);
+		private final long capacityNanos;
+
+		private Bucket(long capacityNanos) {
+			this.capacityNanos = capacityNanos;
+		}
+	}
+
+	/**
+	 * Keeps a bucket for as long as it takes to refill from empty after its last use.
+	 */
+	private static final class UntilFull implements Expiry<BucketKey, Bucket> {
+		@Override
+		public long expireAfterCreate(BucketKey key, Bucket bucket, long currentTime) {
+			return bucket.capacityNanos;
+		}
+
+		@Override
+		public long expireAfterUpdate(BucketKey key, Bucket bucket, long currentTime, long currentDuration) {
+			return bucket.capacityNanos;
+		}
+
+		@Override
+		public long expireAfterRead(BucketKey key, Bucket bucket, long currentTime, long currentDuration) {
+			return bucket.capacityNanos;
+		}
+	}
+
+	public static class Config {
+		private int replenishRate = 10;
+		private int burstCapacity = 20;
+		private int requestedTokens = 1;
+
+		public int getReplenishRate() {
+			return replenishRate;
+		}
+
+		public Config setReplenishRate(int replenishRate) {
+			if (replenishRate < 1) {
+				throw new IllegalArgumentException("replenishRate must be at least 1");
+			}
+			this.replenishRate = replenishRate;
+			return this;
+		}
+
+		public int getBurstCapacity() {
+			return burstCapacity;
+		}
+
+		public Config setBurstCapacity(int burstCapacity) {
+			if (burstCapacity < 1) {
+				throw new IllegalArgumentException("burstCapacity must be at least 1");
+			}
+			this.burstCapacity = burstCapacity;
+			return this;
+		}
+
+		public int getRequestedTokens() {
+			return requestedTokens;
+		}
+
+		public Config setRequestedTokens(int requestedTokens) {
+			if (requestedTokens < 1) {
+				throw new IllegalArgumentException("requestedTokens must be at least 1");
+			}
+			this.requestedTokens = requestedTokens;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.itm.space.backend.client.filter;
+
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+
+/**
+ * Rate-limit key for {@code RequestRateLimiter}: the authenticated user's name, or the client's address for
+ * requests that are not signed in yet (e.g. the OAuth2 login redirects). The address is the TCP peer, not
+ * {@code X-Forwarded-For}, which clients could set to anything.
+ */
+@Component
+public class PrincipalOrAddressKeyResolver implements KeyResolver {
+
+	@Override
+	public Mono<String> resolve(ServerWebExchange exchange) {
+		return exchange.getPrincipal()
+				.map(Principal::getName)
+				.map(name -> "user:" + name)
+				.switchIfEmpty(Mono.fromSupplier(() -> address(exchange)));
+	}
+
+	private static String address(ServerWebExchange exchange) {
+		InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+		if (remoteAddress == null) {
+			// RequestRateLimiter denies empty keys
+			return "";
+		}
+		return "address:" + (remoteAddress.getAddress() != null
+				? remoteAddress.getAddress().getHostAddress()
+				: remoteAddress.getHostString());
+	}
+}
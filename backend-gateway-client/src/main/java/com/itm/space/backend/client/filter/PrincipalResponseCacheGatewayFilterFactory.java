@@ -0,0 +1,335 @@
+package com.itm.space.backend.client.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Caches successful GET responses in memory, per authenticated user: the key contains the principal name,
+ * so one user's data is never served to another. Requests without a principal are not cached.
+ * <p>
+ * An entry is fresh for {@code timeToLive}, or less if the backend's {@code Cache-Control: max-age} says
+ * so; {@code no-store} responses are never kept. Stale entries with an {@code ETag} are kept for
+ * {@code revalidateFor} and revalidated with {@code If-None-Match}, so an unchanged resource costs the
+ * backend a 304 instead of a full response. The cache is bounded by {@code maxBytes} of response bodies;
+ * streamed responses and bodies over {@code maxEntryBytes} pass through uncached.
+ * <p>
+ * The outcome is reported in the {@code X-Cache} response header: {@code HIT}, {@code REVALIDATED},
+ * {@code MISS} or {@code BYPASS}.
+ */
+@Component
+public class PrincipalResponseCacheGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<PrincipalResponseCacheGatewayFilterFactory.Config> {
+	public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+	private static final Set<String> UNCACHED_HEADERS = Set.of(CACHE_STATUS_HEADER.toLowerCase(),
+			"set-cookie", "transfer-encoding", "connection", "keep-alive", "content-length", "date", "age");
+	private static final Set<MediaType> STREAMING_MEDIA_TYPES = Set.of(MediaType.APPLICATION_NDJSON,
+			MediaType.TEXT_EVENT_STREAM);
+
+	private final MeterRegistry meterRegistry;
+
+	public PrincipalResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry) {
+		super(Config.class);
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return List.of("timeToLive", "maxBytes");
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		Cache<String, CachedResponse> cache = Caffeine.newBuilder()
+				.maximumWeight(config.getMaxBytes().toBytes())
+				.weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+				.expireAfter(new UntilUseless(config.getRevalidateFor()))
+				.recordStats()
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway-responses");
+		// Must wrap the response before NettyWriteResponseFilter writes the proxied body into it
+		return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, cache, config),
+				NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+	}
+
+	private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain,
+							  Cache<String, CachedResponse> cache, Config config) {
+		ServerHttpRequest request = exchange.getRequest();
+		List<String> requestCacheControl = request.getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL);
+		if (request.getMethod() != HttpMethod.GET || contains(requestCacheControl, "no-store")) {
+			return bypass(exchange, chain);
+		}
+		return exchange.getPrincipal()
+				.map(principal -> Optional.of(principal.getName()))
+				.defaultIfEmpty(Optional.empty())
+				.flatMap(principal -> principal.isPresent()
+						? filter(exchange, chain, cache, config, principal.get(), requestCacheControl)
+						: bypass(exchange, chain));
+	}
+
+	private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain,
+							  Cache<String, CachedResponse> cache, Config config, String principal,
+							  List<String> requestCacheControl) {
+		ServerHttpRequest request = exchange.getRequest();
+		String key = String.join("\n", principal, request.getURI().getRawPath(),
+				Objects.toString(request.getURI().getRawQuery(), ""),
+				Objects.toString(request.getHeaders().getFirst(HttpHeaders.ACCEPT), ""));
+		CachedResponse cached = contains(requestCacheControl, "no-cache") ? null : cache.getIfPresent(key);
+		// Read before revalidation overwrites the request's If-None-Match with the cached ETag
+		String clientIfNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+		if (cached != null && cached.isFresh()) {
+			return writeCached(exchange.getResponse(), cached, "HIT", clientIfNoneMatch);
+		}
+		ServerWebExchange forwarded = exchange;
+		if (cached != null) {
+			forwarded = exchange.mutate()
+					.request(request.mutate()
+							.header(HttpHeaders.IF_NONE_MATCH, cached.etag())
+							.build())
+					.build();
+		}
+		CachingResponse response = new CachingResponse(exchange.getResponse(), cache, config, key, cached,
+				clientIfNoneMatch);
+		return chain.filter(forwarded.mutate().response(response).build());
+	}
+
+	private static Mono<Void> bypass(ServerWebExchange exchange, GatewayFilterChain chain) {
+		exchange.getResponse().getHeaders().set(CACHE_STATUS_HEADER, "BYPASS");
+		return chain.filter(exchange);
+	}
+
+	private static Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached, String status,
+										  String ifNoneMatch) {
+		HttpHeaders headers = response.getHeaders();
+		headers.putAll(cached.headers());
+		headers.set(CACHE_STATUS_HEADER, status);
+		if (cached.etag() != null && cached.etag().equals(ifNoneMatch)) {
+			response.setStatusCode(HttpStatus.NOT_MODIFIED);
+			return response.setComplete();
+		}
+		response.setStatusCode(HttpStatus.OK);
+		headers.setContentLength(cached.body().length);
+		return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+	}
+
+	private static boolean contains(List<String> cacheControl, String directive) {
+		for (String header : cacheControl) {
+			for (String value : header.split(",")) {
+				if (value.trim().equalsIgnoreCase(directive)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Also used by RequestCoalescingGatewayFilterFactory, which must not buffer streams either
+	static boolean isStreaming(MediaType contentType) {
+		return contentType != null && STREAMING_MEDIA_TYPES.stream().anyMatch(contentType::isCompatibleWith);
+	}
+
+	/**
+	 * How long a response may be served without asking the backend, or {@code null} if it must not be kept.
+	 */
+	private static Duration freshness(HttpHeaders headers, Duration timeToLive) {
+		Duration freshness = timeToLive;
+		for (String header : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+			for (String value : header.split(",")) {
+				String directive = value.trim().toLowerCase();
+				if (directive.equals("no-store")) {
+					return null;
+				}
+				if (directive.equals("no-cache")) {
+					freshness = Duration.ZERO;
+				} else if (directive.startsWith("max-age=")) {
+					try {
+						Duration maxAge = Duration.ofSeconds(Long.parseLong(directive.substring("max-age=".length())));
+						freshness = maxAge.compareTo(freshness) < 0 ? maxAge : freshness;
+					} catch (NumberFormatException ex) {
+						freshness = Duration.ZERO;
+					}
+				}
+			}
+		}
+		return freshness;
+	}
+
+	private class CachingResponse extends ServerHttpResponseDecorator {
+		private final Cache<String, CachedResponse> cache;
+		private final Config config;
+		private final String key;
+		private final CachedResponse stale;
+		private final String clientIfNoneMatch;
+
+		CachingResponse(ServerHttpResponse response, Cache<String, CachedResponse> cache, Config config, String key,
+						CachedResponse stale, String clientIfNoneMatch) {
+			super(response);
+			this.cache = cache;
+			this.config = config;
+			this.key = key;
+			this.stale = stale;
+			this.clientIfNoneMatch = clientIfNoneMatch;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			HttpHeaders headers = getHeaders();
+			Duration freshness = freshness(headers, config.getTimeToLive());
+			if (stale != null && getStatusCode() == HttpStatus.NOT_MODIFIED) {
+				CachedResponse revalidated = stale.revalidated(freshness != null ? freshness : Duration.ZERO);
+				cache.put(key, revalidated);
+				return Flux.from(body)
+						.doOnNext(DataBufferUtils::release)
+						.then(Mono.defer(() ->
+								writeCached(getDelegate(), revalidated, "REVALIDATED", clientIfNoneMatch)));
+			}
+			headers.set(CACHE_STATUS_HEADER, "MISS");
+			String etag = headers.getETag();
+			long contentLength = headers.getContentLength();
+			if (getStatusCode() != HttpStatus.OK || freshness == null || (freshness.isZero() && etag == null)
+					|| contentLength > config.getMaxEntryBytes().toBytes() || isStreaming(headers.getContentType())) {
+				return super.writeWith(body);
+			}
+			HttpHeaders cachedHeaders = new HttpHeaders();
+			headers.forEach((name, values) -> {
+				if (!UNCACHED_HEADERS.contains(name.toLowerCase())) {
+					cachedHeaders.addAll(name, values);
+				}
+			});
+			int maxEntryBytes = (int) config.getMaxEntryBytes().toBytes();
+			ByteArrayOutputStream copy = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 1024);
+			boolean[] tooLarge = {false};
+			Flux<? extends DataBuffer> teed = Flux.from(body)
+					.doOnNext(buffer -> {
+						if (tooLarge[0] || copy.size() + buffer.readableByteCount() > maxEntryBytes) {
+							tooLarge[0] = true;
+							return;
+						}
+						ByteBuffer bytes = buffer.asByteBuffer();
+						byte[] chunk = new byte[bytes.remaining()];
+						bytes.get(chunk);
+						copy.write(chunk, 0, chunk.length);
+					})
+					.doOnComplete(() -> {
+						if (!tooLarge[0]) {
+							cache.put(key, new CachedResponse(cachedHeaders, copy.toByteArray(), etag,
+									System.nanoTime() + freshness.toNanos()));
+						}
+					});
+			return super.writeWith(teed);
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			getHeaders().set(CACHE_STATUS_HEADER, "BYPASS");
+			return super.writeAndFlushWith(body);
+		}
+	}
+
+	private record CachedResponse(HttpHeaders headers, byte[] body, String etag, long freshUntilNanos) {
+
+		boolean isFresh() {
+			return System.nanoTime() - freshUntilNanos < 0;
+		}
+
+		CachedResponse revalidated(Duration freshness) {
+			return new CachedResponse(headers, body, etag, System.nanoTime() + freshness.toNanos());
+		}
+	}
+
+	/**
+	 * Drops entries when they go stale, unless they can still be revalidated by ETag.
+	 */
+	private record UntilUseless(Duration revalidateFor) implements Expiry<String, CachedResponse> {
+
+		@Override
+		public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+			long fresh = Math.max(0, response.freshUntilNanos() - System.nanoTime());
+			return response.etag() != null ? Math.max(fresh, revalidateFor.toNanos()) : fresh;
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, response, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	public static class Config {
+		private Duration timeToLive = Duration.ofSeconds(30);
+		private Duration revalidateFor = Duration.ofMinutes(5);
+		private DataSize maxBytes = DataSize.ofMegabytes(16);
+		private DataSize maxEntryBytes = DataSize.ofKilobytes(512);
+
+		public Duration getTimeToLive() {
+			return timeToLive;
+		}
+
+		public Config setTimeToLive(Duration timeToLive) {
+			this.timeToLive = timeToLive;
+			return this;
+		}
+
+		public Duration getRevalidateFor() {
+			return revalidateFor;
+		}
+
+		public Config setRevalidateFor(Duration revalidateFor) {
+			this.revalidateFor = revalidateFor;
+			return this;
+		}
+
+		public DataSize getMaxBytes() {
+			return maxBytes;
+		}
+
+		public Config setMaxBytes(DataSize maxBytes) {
+			this.maxBytes = maxBytes;
+			return this;
+		}
+
+		public DataSize getMaxEntryBytes() {
+			return maxEntryBytes;
+		}
+
+		public Config setMaxEntryBytes(DataSize maxEntryBytes) {
+			this.maxEntryBytes = maxEntryBytes;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package com.itm.space.backend.client.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends identical concurrent GETs of the same user to the backend once (single-flight). The first request
+ * goes upstream; requests with the same principal, path, query, {@code Accept} and {@code If-None-Match}
+ * that arrive while it is in flight wait for it and get a copy of its response, marked with
+ * {@code X-Coalesced: true}. Requests without a principal are never coalesced.
+ * <p>
+ * Waiters make their own upstream request when the first one fails or is cancelled, or when its response is
+ * streamed or larger than {@code maxBodyBytes}: only bodies up to that size are buffered for replay.
+ */
+@Component
+public class RequestCoalescingGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+	public static final String COALESCED_HEADER = "X-Coalesced";
+
+	private static final Set<String> UNREPLAYED_HEADERS = Set.of(
+			PrincipalResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER.toLowerCase(),
+			"set-cookie", "transfer-encoding", "connection", "keep-alive", "content-length", "date");
+
+	private final Counter coalesced;
+
+	public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+		super(Config.class);
+		this.coalesced = Counter.builder("gateway.requests.coalesced")
+				.description("Requests answered with the response of an identical request already in flight")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return List.of("maxBodyBytes");
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+		// Must wrap the response before NettyWriteResponseFilter writes the proxied body into it
+		return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, inFlight, config),
+				NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+	}
+
+	private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Map<String, Flight> inFlight,
+							  Config config) {
+		if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+			return chain.filter(exchange);
+		}
+		return exchange.getPrincipal()
+				.map(principal -> Optional.of(principal.getName()))
+				.defaultIfEmpty(Optional.empty())
+				.flatMap(principal -> principal.isPresent()
+						? coalesce(exchange, chain, inFlight, config, principal.get())
+						: chain.filter(exchange));
+	}
+
+	private Mono<Void> coalesce(ServerWebExchange exchange, GatewayFilterChain chain, Map<String, Flight> inFlight,
+								Config config, String principal) {
+		ServerHttpRequest request = exchange.getRequest();
+		String key = String.join("\n", principal, request.getURI().getRawPath(),
+				Objects.toString(request.getURI().getRawQuery(), ""),
+				Objects.toString(request.getHeaders().getFirst(HttpHeaders.ACCEPT), ""),
+				Objects.toString(request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH), ""));
+		Flight flight = new Flight();
+		Flight leader = inFlight.putIfAbsent(key, flight);
+		if (leader != null) {
+			return leader.response()
+					.map(Optional::of)
+					.defaultIfEmpty(Optional.empty())
+					.flatMap(response -> response.isPresent()
+							? replay(exchange.getResponse(), response.get())
+							: chain.filter(exchange));
+		}
+		Runnable detach = () -> inFlight.remove(key, flight);
+		CoalescingResponse response = new CoalescingResponse(exchange.getResponse(), flight, detach,
+				(int) config.getMaxBodyBytes().toBytes());
+		return chain.filter(exchange.mutate().response(response).build())
+				.doFinally(signal -> {
+					detach.run();
+					flight.abandon();
+				});
+	}
+
+	private Mono<Void> replay(ServerHttpResponse response, BufferedResponse buffered) {
+		coalesced.increment();
+		response.setRawStatusCode(buffered.status());
+		HttpHeaders headers = response.getHeaders();
+		headers.putAll(buffered.headers());
+		headers.set(COALESCED_HEADER, "true");
+		if (buffered.status() != HttpStatus.NOT_MODIFIED.value()) {
+			headers.setContentLength(buffered.body().length);
+		}
+		return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(buffered.body())));
+	}
+
+	/**
+	 * The upstream request of the first caller; completes empty if its response cannot be shared.
+	 */
+	private static final class Flight {
+		private final Sinks.One<BufferedResponse> result = Sinks.one();
+
+		Mono<BufferedResponse> response() {
+			return result.asMono();
+		}
+
+		void land(BufferedResponse response) {
+			result.tryEmitValue(response);
+		}
+
+		void abandon() {
+			result.tryEmitEmpty();
+		}
+	}
+
+	private static final class CoalescingResponse extends ServerHttpResponseDecorator {
+		private final Flight flight;
+		private final Runnable detach;
+		private final int maxBodyBytes;
+
+		CoalescingResponse(ServerHttpResponse response, Flight flight, Runnable detach, int maxBodyBytes) {
+			super(response);
+			this.flight = flight;
+			this.detach = detach;
+			this.maxBodyBytes = maxBodyBytes;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			HttpHeaders headers = getHeaders();
+			long contentLength = headers.getContentLength();
+			Integer status = getRawStatusCode();
+			if (contentLength > maxBodyBytes || status == null
+					|| PrincipalResponseCacheGatewayFilterFactory.isStreaming(headers.getContentType())) {
+				flight.abandon();
+				return super.writeWith(body);
+			}
+			HttpHeaders replayedHeaders = new HttpHeaders();
+			headers.forEach((name, values) -> {
+				if (!UNREPLAYED_HEADERS.contains(name.toLowerCase())) {
+					replayedHeaders.addAll(name, values);
+				}
+			});
+			ByteArrayOutputStream copy = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 1024);
+			boolean[] tooLarge = {false};
+			Flux<? extends DataBuffer> teed = Flux.from(body)
+					.doOnNext(buffer -> {
+						if (tooLarge[0] || copy.size() + buffer.readableByteCount() > maxBodyBytes) {
+							// Let the waiters go upstream now rather than after the whole body has passed
+							tooLarge[0] = true;
+							flight.abandon();
+							return;
+						}
+						ByteBuffer bytes = buffer.asByteBuffer();
+						byte[] chunk = new byte[bytes.remaining()];
+						bytes.get(chunk);
+						copy.write(chunk, 0, chunk.length);
+					})
+					.doOnComplete(() -> {
+						// Later requests must start a new flight instead of joining one that is over
+						detach.run();
+						if (!tooLarge[0]) {
+							flight.land(new BufferedResponse(status, replayedHeaders, copy.toByteArray()));
+						}
+					});
+			return super.writeWith(teed);
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			// Responses the server flushes as they go (SSE) are not buffered; NDJSON is turned away in writeWith
+			flight.abandon();
+			return super.writeAndFlushWith(body);
+		}
+	}
+
+	private record BufferedResponse(int status, HttpHeaders headers, byte[] body) {
+	}
+
+	public static class Config {
+		private DataSize maxBodyBytes = DataSize.ofKilobytes(256);
+
+		public DataSize getMaxBodyBytes() {
+			return maxBodyBytes;
+		}
+
+		public Config setMaxBodyBytes(DataSize maxBodyBytes) {
+			this.maxBodyBytes = maxBodyBytes;
+			return this;
+		}
+	}
+}
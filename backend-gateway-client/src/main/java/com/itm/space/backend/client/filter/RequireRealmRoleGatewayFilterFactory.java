@@ -0,0 +1,221 @@
+package com.itm.space.backend.client.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Rejects proxied requests at the edge unless the access token relayed to the backend carries one of the
+ * route's realm roles, read from {@code realm_access.roles} like backend-resources does. Runs right after
+ * {@code TimedTokenRelay} and before the response cache, so a rejected request never reaches a cached
+ * response or the backend.
+ * <p>
+ * Tokens are verified locally against the realm's JWKS, which is fetched once and again only for unknown key
+ * ids; verified tokens are remembered until they expire, up to {@code gateway.edge-auth.maximum-tokens}, keyed
+ * by the SHA-256 of the raw token so that the cache does not hold usable credentials.
+ * A missing or invalid token is answered with 401, a token without the role with 403. When the token cannot
+ * be checked at all (e.g. the JWKS is unreachable) the request is forwarded: backend-resources still
+ * authorizes every request.
+ * <p>
+ * Each check is timed as {@code gateway.edge.authorization}, tagged with the route and an outcome of
+ * {@code allowed}, {@code unauthorized}, {@code forbidden} or {@code unchecked}.
+ */
+@Component
+public class RequireRealmRoleGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<RequireRealmRoleGatewayFilterFactory.Config> {
+	public static final int ORDER = TimedTokenRelayGatewayFilterFactory.ORDER + 1;
+
+	private static final String REALM_ACCESS_CLAIM = "realm_access";
+	private static final String ROLES_CLAIM = "roles";
+	private static final String BEARER_PREFIX = "Bearer ";
+
+	private final ReactiveJwtDecoder jwtDecoder;
+	private final MeterRegistry meterRegistry;
+	private final Cache<String, Jwt> verifiedTokens;
+
+	@Autowired
+	public RequireRealmRoleGatewayFilterFactory(
+			@Value("${gateway.edge-auth.issuer-uri}") String issuerUri,
+			@Value("${gateway.edge-auth.jwk-set-uri}") String jwkSetUri,
+			@Value("${gateway.edge-auth.maximum-tokens:10000}") long maximumTokens,
+			MeterRegistry meterRegistry) {
+		this(jwtDecoder(issuerUri, jwkSetUri), maximumTokens, meterRegistry);
+	}
+
+	public RequireRealmRoleGatewayFilterFactory(ReactiveJwtDecoder jwtDecoder, long maximumTokens,
+												MeterRegistry meterRegistry) {
+		super(Config.class);
+		this.jwtDecoder = jwtDecoder;
+		this.meterRegistry = meterRegistry;
+		this.verifiedTokens = Caffeine.newBuilder()
+				.maximumSize(maximumTokens)
+				.expireAfter(new UntilTokenExpires())
+				.build();
+	}
+
+	@Override
+	public ShortcutType shortcutType() {
+		return ShortcutType.GATHER_LIST;
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return List.of("roles");
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		Set<String> roles = Set.copyOf(config.getRoles());
+		return new OrderedGatewayFilter((exchange, chain) -> filter(exchange, chain, roles), ORDER);
+	}
+
+	private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain, Set<String> roles) {
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String token = bearerToken(exchange);
+		if (token == null) {
+			return reject(exchange, sample, HttpStatus.UNAUTHORIZED, "invalid_token");
+		}
+		return verify(token)
+				.flatMap(jwt -> realmRoles(jwt).stream().anyMatch(roles::contains)
+						? forward(exchange, chain, sample, "allowed")
+						: reject(exchange, sample, HttpStatus.FORBIDDEN, "insufficient_scope"))
+				.onErrorResume(BadJwtException.class,
+						ex -> reject(exchange, sample, HttpStatus.UNAUTHORIZED, "invalid_token"))
+				// The JWKS is unreachable or holds no usable key: leave the decision to the backend
+				.onErrorResume(JwtException.class, ex -> forward(exchange, chain, sample, "unchecked"));
+	}
+
+	private Mono<Jwt> verify(String token) {
+		String key = sha256(token);
+		Jwt verified = verifiedTokens.getIfPresent(key);
+		if (verified != null) {
+			return Mono.just(verified);
+		}
+		// Nimbus throws some failures (malformed tokens, bad signatures) instead of signalling them in the Mono
+		return Mono.defer(() -> jwtDecoder.decode(token)).doOnNext(jwt -> verifiedTokens.put(key, jwt));
+	}
+
+	private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, Timer.Sample sample,
+							   String outcome) {
+		sample.stop(timer(exchange, outcome));
+		return chain.filter(exchange);
+	}
+
+	private Mono<Void> reject(ServerWebExchange exchange, Timer.Sample sample, HttpStatus status, String error) {
+		sample.stop(timer(exchange, status == HttpStatus.FORBIDDEN ? "forbidden" : "unauthorized"));
+		exchange.getResponse().setStatusCode(status);
+		exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"" + error + "\"");
+		return exchange.getResponse().setComplete();
+	}
+
+	private Timer timer(ServerWebExchange exchange, String outcome) {
+		Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+		return Timer.builder("gateway.edge.authorization")
+				.description("Edge checks of the relayed access token against the route's realm roles")
+				.tag("route", route != null ? route.getId() : "unknown")
+				.tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+
+	private static String bearerToken(ServerWebExchange exchange) {
+		String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+		if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+			return null;
+		}
+		return authorization.substring(BEARER_PREFIX.length()).trim();
+	}
+
+	private static List<?> realmRoles(Jwt jwt) {
+		Object realmAccess = jwt.getClaims().get(REALM_ACCESS_CLAIM);
+		if (!(realmAccess instanceof Map<?, ?> realmAccessMap)) {
+			return Collections.emptyList();
+		}
+		Object roles = realmAccessMap.get(ROLES_CLAIM);
+		if (!(roles instanceof List<?> roleList)) {
+			return Collections.emptyList();
+		}
+		// The route's roles are an immutable set, and its contains rejects null
+		return roleList.stream().filter(Objects::nonNull).toList();
+	}
+
+	private static String sha256(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static ReactiveJwtDecoder jwtDecoder(String issuerUri, String jwkSetUri) {
+		NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withJwkSetUri(jwkSetUri).build();
+		decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+		return decoder;
+	}
+
+	private static final class UntilTokenExpires implements Expiry<String, Jwt> {
+		@Override
+		public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+			if (jwt.getExpiresAt() == null) {
+				return 0;
+			}
+			return Math.max(0, Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos());
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+
+		@Override
+		public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	public static class Config {
+		private List<String> roles = List.of();
+
+		public List<String> getRoles() {
+			return roles;
+		}
+
+		public Config setRoles(List<String> roles) {
+			this.roles = roles;
+			return this;
+		}
+	}
+}
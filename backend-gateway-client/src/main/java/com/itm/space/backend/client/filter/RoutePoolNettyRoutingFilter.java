@@ -0,0 +1,159 @@
+package com.itm.space.backend.client.filter;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routing filter that gives routes their own connection pool and protocol, configured in the route's
+ * metadata next to the gateway's own {@code response-timeout} and {@code connect-timeout}:
+ * <pre>
+ * metadata:
+ *   protocol: h2c                       # or http1 (default)
+ *   pool:
+ *     max-connections: 100
+ *     pending-acquire-max-count: 500    # requests queued for a connection, -1 for no limit
+ *     pending-acquire-timeout: 2000     # ms
+ *     max-idle-time: 30000              # ms
+ *     max-life-time: 600000             # ms
+ * </pre>
+ * {@code h2c} speaks HTTP/2 over cleartext with prior knowledge, so the backend must accept it (Tomcat with
+ * {@code server.http2.enabled}); requests then share a few multiplexed connections instead of queueing for
+ * one each. Routes without {@code pool} or {@code protocol} use the gateway's shared client.
+ * <p>
+ * A route's client is built by the gateway's {@link HttpClientFactory} from {@code spring.cloud.gateway.httpclient}
+ * and its customizers, on the route's first request, and kept for the route id. Its pool publishes the
+ * {@code reactor.netty.connection.provider.*} metrics with the route id as {@code name}.
+ * <p>
+ * Replaces the gateway's routing filter, see {@code RoutingConfiguration}.
+ */
+public class RoutePoolNettyRoutingFilter extends NettyRoutingFilter implements DisposableBean {
+	public static final String PROTOCOL_METADATA = "protocol";
+	public static final String POOL_METADATA = "pool";
+
+	private static final Duration EVICTION_INTERVAL = Duration.ofSeconds(30);
+
+	private final HttpClientProperties properties;
+	private final ServerProperties serverProperties;
+	private final List<HttpClientCustomizer> customizers;
+	private final Map<String, RouteClient> routeClients = new ConcurrentHashMap<>();
+
+	public RoutePoolNettyRoutingFilter(HttpClient httpClient,
+									   ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+									   HttpClientProperties properties,
+									   ServerProperties serverProperties,
+									   List<HttpClientCustomizer> customizers) {
+		super(httpClient, headersFiltersProvider, properties);
+		this.properties = properties;
+		this.serverProperties = serverProperties;
+		this.customizers = customizers;
+	}
+
+	@Override
+	protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+		Map<String, Object> metadata = route.getMetadata();
+		if (!metadata.containsKey(POOL_METADATA) && !metadata.containsKey(PROTOCOL_METADATA)) {
+			return super.getHttpClient(route, exchange);
+		}
+		HttpClient httpClient = routeClients.computeIfAbsent(route.getId(), id -> routeClient(id, metadata)).httpClient;
+		Object connectTimeout = metadata.get(RouteMetadataUtils.CONNECT_TIMEOUT_ATTR);
+		if (connectTimeout != null) {
+			return httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) toLong(connectTimeout));
+		}
+		return httpClient;
+	}
+
+	@Override
+	public void destroy() {
+		routeClients.values().forEach(routeClient -> routeClient.connectionProvider.dispose());
+	}
+
+	private RouteClient routeClient(String routeId, Map<String, Object> metadata) {
+		ConnectionProvider connectionProvider = connectionProvider(routeId, metadata.get(POOL_METADATA));
+		HttpClient httpClient =
+				new RouteHttpClientFactory(properties, serverProperties, customizers, connectionProvider).create()
+						.protocol(protocol(routeId, metadata.get(PROTOCOL_METADATA)));
+		return new RouteClient(httpClient, connectionProvider);
+	}
+
+	private static ConnectionProvider connectionProvider(String routeId, Object poolMetadata) {
+		ConnectionProvider.Builder builder = ConnectionProvider.builder(routeId)
+				.evictInBackground(EVICTION_INTERVAL)
+				.metrics(true);
+		if (poolMetadata == null) {
+			return builder.build();
+		}
+		if (!(poolMetadata instanceof Map<?, ?> pool)) {
+			throw new IllegalArgumentException("Route " + routeId + ": metadata pool must be a map");
+		}
+		if (pool.get("max-connections") != null) {
+			builder.maxConnections((int) toLong(pool.get("max-connections")));
+		}
+		if (pool.get("pending-acquire-max-count") != null) {
+			builder.pendingAcquireMaxCount((int) toLong(pool.get("pending-acquire-max-count")));
+		}
+		if (pool.get("pending-acquire-timeout") != null) {
+			builder.pendingAcquireTimeout(Duration.ofMillis(toLong(pool.get("pending-acquire-timeout"))));
+		}
+		if (pool.get("max-idle-time") != null) {
+			builder.maxIdleTime(Duration.ofMillis(toLong(pool.get("max-idle-time"))));
+		}
+		if (pool.get("max-life-time") != null) {
+			builder.maxLifeTime(Duration.ofMillis(toLong(pool.get("max-life-time"))));
+		}
+		return builder.build();
+	}
+
+	private static HttpProtocol protocol(String routeId, Object protocol) {
+		if (protocol == null || "http1".equals(protocol)) {
+			return HttpProtocol.HTTP11;
+		}
+		if ("h2c".equals(protocol)) {
+			return HttpProtocol.H2C;
+		}
+		throw new IllegalArgumentException("Route " + routeId + ": protocol must be http1 or h2c, not " + protocol);
+	}
+
+	private static long toLong(Object value) {
+		return value instanceof Number number ? number.longValue() : Long.parseLong(value.toString());
+	}
+
+	private record RouteClient(HttpClient httpClient, ConnectionProvider connectionProvider) {
+	}
+
+	private static final class RouteHttpClientFactory extends HttpClientFactory {
+		private final ConnectionProvider connectionProvider;
+
+		private RouteHttpClientFactory(HttpClientProperties properties, ServerProperties serverProperties,
+									   List<HttpClientCustomizer> customizers, ConnectionProvider connectionProvider) {
+			super(properties, serverProperties, customizers);
+			this.connectionProvider = connectionProvider;
+		}
+
+		HttpClient create() {
+			return createInstance();
+		}
+
+		@Override
+		protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+			return connectionProvider;
+		}
+	}
+}
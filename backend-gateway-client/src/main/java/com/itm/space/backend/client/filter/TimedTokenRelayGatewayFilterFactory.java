@@ -0,0 +1,45 @@
+package com.itm.space.backend.client.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.TokenRelayGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code TokenRelay} that records how long it takes to attach the user's access token, including any token
+ * refresh, as {@code gateway.token.relay}. Requests the relay does not forward are not recorded.
+ * <p>
+ * Runs before the filters that wrap the response, so that they and the edge role check see the token.
+ */
+@Component
+public class TimedTokenRelayGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+	public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 10;
+
+	private final TokenRelayGatewayFilterFactory tokenRelay;
+	private final Timer timer;
+
+	public TimedTokenRelayGatewayFilterFactory(TokenRelayGatewayFilterFactory tokenRelay,
+											   MeterRegistry meterRegistry) {
+		super(Object.class);
+		this.tokenRelay = tokenRelay;
+		this.timer = Timer.builder("gateway.token.relay")
+				.description("Time spent attaching the user's access token to proxied requests")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public GatewayFilter apply(Object config) {
+		GatewayFilter relay = tokenRelay.apply();
+		return new OrderedGatewayFilter((exchange, chain) -> {
+			Timer.Sample sample = Timer.start();
+			return relay.filter(exchange, relayed -> {
+				sample.stop(timer);
+				return chain.filter(relayed);
+			});
+		}, ORDER);
+	}
+}
@@ -0,0 +1,79 @@
+package com.itm.space.backend.client;
+
+import com.itm.space.backend.client.filter.LocalRateLimiter;
+import com.itm.space.backend.client.filter.PrincipalOrAddressKeyResolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.event.FilterArgsEvent;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.validation.Validator;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.util.Map;
+
+class LocalRateLimiterTest {
+	private static final String ROUTE_ID = "resources";
+
+	private LocalRateLimiter rateLimiter;
+
+	@BeforeEach
+	void setUp() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		rateLimiter = new LocalRateLimiter(new ConfigurationService(beanFactory,
+				beanFactory.getBeanProvider(ConversionService.class),
+				beanFactory.getBeanProvider(Validator.class)), 1000);
+		// The same event RouteDefinitionRouteLocator publishes for RequestRateLimiter args in application.yml
+		rateLimiter.onApplicationEvent(new FilterArgsEvent(this, ROUTE_ID, Map.of(
+				"local-rate-limiter.replenish-rate", "1",
+				"local-rate-limiter.burst-capacity", "3")));
+	}
+
+	@Test
+	void allowBurstThenDenyWithRetryAfter() {
+		for (int remaining = 2; remaining >= 0; remaining--) {
+			RateLimiter.Response response = rateLimiter.isAllowed(ROUTE_ID, "user:moderator").block();
+			Assertions.assertTrue(response.isAllowed());
+			Assertions.assertEquals(String.valueOf(remaining),
+					response.getHeaders().get(LocalRateLimiter.REMAINING_HEADER));
+		}
+
+		RateLimiter.Response denied = rateLimiter.isAllowed(ROUTE_ID, "user:moderator").block();
+		Assertions.assertFalse(denied.isAllowed());
+		Assertions.assertEquals("1", denied.getHeaders().get(HttpHeaders.RETRY_AFTER));
+		Assertions.assertEquals("3", denied.getHeaders().get(LocalRateLimiter.BURST_CAPACITY_HEADER));
+	}
+
+	@Test
+	void limitEachKeyAndRouteSeparately() {
+		for (int i = 0; i < 3; i++) {
+			rateLimiter.isAllowed(ROUTE_ID, "user:moderator").block();
+		}
+
+		Assertions.assertTrue(rateLimiter.isAllowed(ROUTE_ID, "user:another-moderator").block().isAllowed());
+		// Routes without local-rate-limiter args get the defaults
+		RateLimiter.Response otherRoute = rateLimiter.isAllowed("resources-users-read", "user:moderator").block();
+		Assertions.assertTrue(otherRoute.isAllowed());
+		Assertions.assertEquals("20", otherRoute.getHeaders().get(LocalRateLimiter.BURST_CAPACITY_HEADER));
+	}
+
+	@Test
+	void resolvePrincipalBeforeClientAddress() {
+		PrincipalOrAddressKeyResolver keyResolver = new PrincipalOrAddressKeyResolver();
+		MockServerWebExchange anonymous = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users")
+				.remoteAddress(new InetSocketAddress("192.0.2.10", 50000)));
+		Principal user = () -> "moderator";
+
+		Assertions.assertEquals("address:192.0.2.10", keyResolver.resolve(anonymous).block());
+		Assertions.assertEquals("user:moderator",
+				keyResolver.resolve(anonymous.mutate().principal(Mono.just(user)).build()).block());
+	}
+}
@@ -0,0 +1,127 @@
+package com.itm.space.backend.client;
+
+import com.itm.space.backend.client.filter.PrincipalResponseCacheGatewayFilterFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+class PrincipalResponseCacheGatewayFilterFactoryTest {
+	private static final String USER_PATH = "/api/users/0b5d4f5e-6c1a-4a0e-9f8e-2a4c2b7d8e91";
+
+	private final GatewayFilter filter = new PrincipalResponseCacheGatewayFilterFactory(new SimpleMeterRegistry())
+			.apply(new PrincipalResponseCacheGatewayFilterFactory.Config());
+	private final List<ServerWebExchange> forwarded = new ArrayList<>();
+
+	@Test
+	void serveRepeatedRequestFromCache() {
+		GatewayFilterChain backend = backend(HttpStatus.OK, null, null);
+
+		ServerWebExchange first = exchange("moderator");
+		filter.filter(first, backend).block();
+		ServerWebExchange second = exchange("moderator");
+		filter.filter(second, backend).block();
+
+		Assertions.assertEquals(1, forwarded.size());
+		Assertions.assertEquals("MISS", cacheStatus(first));
+		Assertions.assertEquals("HIT", cacheStatus(second));
+		Assertions.assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+		Assertions.assertEquals(body(first), body(second));
+	}
+
+	@Test
+	void neverShareResponsesBetweenPrincipals() {
+		GatewayFilterChain backend = backend(HttpStatus.OK, null, null);
+
+		filter.filter(exchange("moderator"), backend).block();
+		ServerWebExchange other = exchange("another-moderator");
+		filter.filter(other, backend).block();
+
+		Assertions.assertEquals(2, forwarded.size());
+		Assertions.assertEquals("MISS", cacheStatus(other));
+	}
+
+	@Test
+	void bypassAnonymousRequests() {
+		GatewayFilterChain backend = backend(HttpStatus.OK, null, null);
+
+		MockServerWebExchange anonymous = MockServerWebExchange.from(MockServerHttpRequest.get(USER_PATH));
+		filter.filter(anonymous, backend).block();
+		filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get(USER_PATH)), backend).block();
+
+		Assertions.assertEquals(2, forwarded.size());
+		Assertions.assertEquals("BYPASS", cacheStatus(anonymous));
+	}
+
+	@Test
+	void doNotStoreNoStoreResponses() {
+		GatewayFilterChain backend = backend(HttpStatus.OK, "no-store", null);
+
+		filter.filter(exchange("moderator"), backend).block();
+		ServerWebExchange second = exchange("moderator");
+		filter.filter(second, backend).block();
+
+		Assertions.assertEquals(2, forwarded.size());
+		Assertions.assertEquals("MISS", cacheStatus(second));
+	}
+
+	@Test
+	void revalidateStaleResponseWithEtag() {
+		filter.filter(exchange("moderator"), backend(HttpStatus.OK, "no-cache", "\"v1\"")).block();
+		ServerWebExchange second = exchange("moderator");
+		filter.filter(second, backend(HttpStatus.NOT_MODIFIED, "no-cache", "\"v1\"")).block();
+
+		Assertions.assertEquals("\"v1\"", forwarded.get(1).getRequest().getHeaders().getIfNoneMatch().get(0));
+		Assertions.assertEquals("REVALIDATED", cacheStatus(second));
+		Assertions.assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+		Assertions.assertEquals("{\"email\":\"moderator@itm.space\"}", body(second));
+	}
+
+	private static ServerWebExchange exchange(String principal) {
+		Principal user = () -> principal;
+		return MockServerWebExchange.from(MockServerHttpRequest.get(USER_PATH))
+				.mutate()
+				.principal(Mono.just(user))
+				.build();
+	}
+
+	private static String body(ServerWebExchange exchange) {
+		return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block();
+	}
+
+	private GatewayFilterChain backend(HttpStatus status, String cacheControl, String etag) {
+		return exchange -> {
+			forwarded.add(exchange);
+			exchange.getResponse().setStatusCode(status);
+			HttpHeaders headers = exchange.getResponse().getHeaders();
+			if (cacheControl != null) {
+				headers.setCacheControl(cacheControl);
+			}
+			if (etag != null) {
+				headers.setETag(etag);
+			}
+			byte[] body = status == HttpStatus.OK
+					? "{\"email\":\"moderator@itm.space\"}".getBytes(StandardCharsets.UTF_8)
+					: new byte[0];
+			return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+		};
+	}
+
+	private static String cacheStatus(ServerWebExchange exchange) {
+		return exchange.getResponse().getHeaders()
+				.getFirst(PrincipalResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER);
+	}
+}
@@ -0,0 +1,136 @@
+package com.itm.space.backend.client;
+
+import com.itm.space.backend.client.filter.RequestCoalescingGatewayFilterFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+class RequestCoalescingGatewayFilterFactoryTest {
+	private static final String USER_PATH = "/api/users/0b5d4f5e-6c1a-4a0e-9f8e-2a4c2b7d8e91";
+	private static final String BODY = "{\"email\":\"moderator@itm.space\"}";
+
+	private final RequestCoalescingGatewayFilterFactory factory =
+			new RequestCoalescingGatewayFilterFactory(new SimpleMeterRegistry());
+	private final List<ServerWebExchange> forwarded = new ArrayList<>();
+	// Holds every upstream response back until the test releases it, so that requests overlap
+	private final Sinks.Empty<Void> upstream = Sinks.empty();
+
+	@Test
+	void replayInFlightResponseToIdenticalRequests() {
+		GatewayFilter filter = factory.apply(new RequestCoalescingGatewayFilterFactory.Config());
+		ServerWebExchange first = exchange("moderator");
+		ServerWebExchange second = exchange("moderator");
+
+		Disposable leader = filter.filter(first, backend()).subscribe();
+		Disposable waiter = filter.filter(second, backend()).subscribe();
+		upstream.tryEmitEmpty();
+
+		Assertions.assertTrue(leader.isDisposed() && waiter.isDisposed());
+		Assertions.assertEquals(1, forwarded.size());
+		Assertions.assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+		Assertions.assertEquals("true", second.getResponse().getHeaders()
+				.getFirst(RequestCoalescingGatewayFilterFactory.COALESCED_HEADER));
+		Assertions.assertEquals(BODY, body(second));
+		Assertions.assertEquals(BODY, body(first));
+	}
+
+	@Test
+	void neverShareResponsesBetweenPrincipals() {
+		GatewayFilter filter = factory.apply(new RequestCoalescingGatewayFilterFactory.Config());
+
+		filter.filter(exchange("moderator"), backend()).subscribe();
+		filter.filter(exchange("another-moderator"), backend()).subscribe();
+		upstream.tryEmitEmpty();
+
+		Assertions.assertEquals(2, forwarded.size());
+	}
+
+	@Test
+	void sendWaitersUpstreamWhenResponseIsTooLarge() {
+		GatewayFilter filter = factory.apply(new RequestCoalescingGatewayFilterFactory.Config()
+				.setMaxBodyBytes(DataSize.ofBytes(8)));
+		ServerWebExchange second = exchange("moderator");
+
+		filter.filter(exchange("moderator"), backend()).subscribe();
+		filter.filter(second, backend()).subscribe();
+		upstream.tryEmitEmpty();
+
+		Assertions.assertEquals(2, forwarded.size());
+		Assertions.assertEquals(BODY, body(second));
+		Assertions.assertNull(second.getResponse().getHeaders()
+				.getFirst(RequestCoalescingGatewayFilterFactory.COALESCED_HEADER));
+	}
+
+	@Test
+	void startNewFlightOnceResponseIsComplete() {
+		GatewayFilter filter = factory.apply(new RequestCoalescingGatewayFilterFactory.Config());
+		upstream.tryEmitEmpty();
+
+		filter.filter(exchange("moderator"), backend()).block();
+		filter.filter(exchange("moderator"), backend()).block();
+
+		Assertions.assertEquals(2, forwarded.size());
+	}
+
+	@Test
+	void sendWaitersUpstreamWhenResponseIsNdjsonStream() {
+		GatewayFilter filter = factory.apply(new RequestCoalescingGatewayFilterFactory.Config());
+		GatewayFilterChain stream = exchange -> {
+			forwarded.add(exchange);
+			exchange.getResponse().setStatusCode(HttpStatus.OK);
+			exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+			byte[] line = (BODY + "\n").getBytes(StandardCharsets.UTF_8);
+			// The stream stays open, like GET /api/users/stream over a large realm
+			return exchange.getResponse().writeWith(Flux.just(exchange.getResponse().bufferFactory().wrap(line))
+					.concatWith(Flux.never()));
+		};
+
+		Disposable leader = filter.filter(exchange("moderator"), stream).subscribe();
+		Disposable waiter = filter.filter(exchange("moderator"), stream).subscribe();
+
+		Assertions.assertEquals(2, forwarded.size());
+		leader.dispose();
+		waiter.dispose();
+	}
+
+	private static ServerWebExchange exchange(String principal) {
+		Principal user = () -> principal;
+		return MockServerWebExchange.from(MockServerHttpRequest.get(USER_PATH))
+				.mutate()
+				.principal(Mono.just(user))
+				.build();
+	}
+
+	private static String body(ServerWebExchange exchange) {
+		return ((MockServerHttpResponse) exchange.getResponse()).getBodyAsString().block();
+	}
+
+	private GatewayFilterChain backend() {
+		return exchange -> {
+			forwarded.add(exchange);
+			return upstream.asMono().then(Mono.defer(() -> {
+				exchange.getResponse().setStatusCode(HttpStatus.OK);
+				byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+				return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+			}));
+		};
+	}
+}
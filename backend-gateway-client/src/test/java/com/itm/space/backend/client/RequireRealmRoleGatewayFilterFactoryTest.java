@@ -0,0 +1,138 @@
+package com.itm.space.backend.client;
+
+import com.itm.space.backend.client.filter.RequireRealmRoleGatewayFilterFactory;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+class RequireRealmRoleGatewayFilterFactoryTest {
+	private final RSAKey signingKey = generateKey();
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final GatewayFilter filter = new RequireRealmRoleGatewayFilterFactory(
+			NimbusReactiveJwtDecoder.withPublicKey(publicKey(signingKey)).build(), 100, meterRegistry)
+			.apply(new RequireRealmRoleGatewayFilterFactory.Config().setRoles(List.of("MODERATOR")));
+	private final List<ServerWebExchange> forwarded = new ArrayList<>();
+	private final GatewayFilterChain backend = exchange -> {
+		forwarded.add(exchange);
+		return Mono.empty();
+	};
+
+	@Test
+	void forwardTokenWithRole() {
+		String token = token(signingKey, "default-roles-itm", "MODERATOR");
+
+		filter.filter(exchange(token), backend).block();
+		filter.filter(exchange(token), backend).block();
+
+		Assertions.assertEquals(2, forwarded.size());
+		Assertions.assertEquals(2, meterRegistry.get("gateway.edge.authorization")
+				.tag("outcome", "allowed").timer().count());
+	}
+
+	@Test
+	void rejectTokenWithoutRole() {
+		ServerWebExchange exchange = exchange(token(signingKey, "default-roles-itm"));
+
+		filter.filter(exchange, backend).block();
+
+		Assertions.assertTrue(forwarded.isEmpty());
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(1, meterRegistry.get("gateway.edge.authorization")
+				.tag("outcome", "forbidden").timer().count());
+	}
+
+	@Test
+	void skipNullRoles() {
+		ServerWebExchange withRole = exchange(token(signingKey, null, "MODERATOR"));
+		ServerWebExchange withoutRole = exchange(token(signingKey, (String) null));
+
+		filter.filter(withRole, backend).block();
+		filter.filter(withoutRole, backend).block();
+
+		Assertions.assertEquals(List.of(withRole), forwarded);
+		Assertions.assertEquals(HttpStatus.FORBIDDEN, withoutRole.getResponse().getStatusCode());
+	}
+
+	@Test
+	void rejectMissingOrForeignToken() {
+		ServerWebExchange withoutToken = exchange(null);
+		ServerWebExchange foreignToken = exchange(token(generateKey(), "MODERATOR"));
+
+		filter.filter(withoutToken, backend).block();
+		filter.filter(foreignToken, backend).block();
+
+		Assertions.assertTrue(forwarded.isEmpty());
+		Assertions.assertEquals(HttpStatus.UNAUTHORIZED, withoutToken.getResponse().getStatusCode());
+		Assertions.assertEquals(HttpStatus.UNAUTHORIZED, foreignToken.getResponse().getStatusCode());
+		Assertions.assertTrue(foreignToken.getResponse().getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE)
+				.contains("invalid_token"));
+	}
+
+	private static MockServerWebExchange exchange(String token) {
+		MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/users/hello");
+		if (token != null) {
+			request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+		}
+		return MockServerWebExchange.from(request);
+	}
+
+	private static String token(RSAKey key, String... realmRoles) {
+		Instant now = Instant.now();
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.subject("moderator")
+				.issueTime(Date.from(now))
+				.expirationTime(Date.from(now.plusSeconds(300)))
+				.claim("realm_access", Map.of("roles", Arrays.asList(realmRoles)))
+				.build();
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+				claims);
+		try {
+			jwt.sign(new RSASSASigner(key));
+		} catch (JOSEException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return jwt.serialize();
+	}
+
+	private static RSAKey generateKey() {
+		try {
+			return new RSAKeyGenerator(2048).keyID("test").generate();
+		} catch (JOSEException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static RSAPublicKey publicKey(RSAKey key) {
+		try {
+			return key.toRSAPublicKey();
+		} catch (JOSEException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
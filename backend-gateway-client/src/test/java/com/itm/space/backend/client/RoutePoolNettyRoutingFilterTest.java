@@ -0,0 +1,103 @@
+package com.itm.space.backend.client;
+
+import com.itm.space.backend.client.filter.RoutePoolNettyRoutingFilter;
+import io.micrometer.core.instrument.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+class RoutePoolNettyRoutingFilterTest {
+	private final Queue<String> backendProtocols = new ConcurrentLinkedQueue<>();
+	private final DisposableServer backend = HttpServer.create()
+			.port(0)
+			.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11)
+			.handle((request, response) -> {
+				// Reactor Netty hands HTTP/2 streams to handlers as HTTP/1.1 requests with extension headers
+				backendProtocols.add(request.requestHeaders().contains("x-http2-stream-id") ? "h2c" : "http1");
+				return response.sendString(Mono.just("{}"));
+			})
+			.bindNow();
+	private final RoutePoolNettyRoutingFilter filter = new RoutePoolNettyRoutingFilter(
+			HttpClient.create(),
+			new StaticListableBeanFactory().getBeanProvider(
+					ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class)),
+			new HttpClientProperties(),
+			new ServerProperties(),
+			List.of());
+
+	@AfterEach
+	void stop() {
+		filter.destroy();
+		backend.disposeNow();
+	}
+
+	@Test
+	void routeOverOwnPoolWithHttp2() {
+		MockServerWebExchange exchange = exchange(Map.of(
+				RoutePoolNettyRoutingFilter.PROTOCOL_METADATA, "h2c",
+				RoutePoolNettyRoutingFilter.POOL_METADATA, Map.of("max-connections", 4)));
+
+		filter.filter(exchange, ignored -> Mono.empty()).block();
+		consume(exchange);
+
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(List.of("h2c"), List.copyOf(backendProtocols));
+		Assertions.assertNotNull(Metrics.globalRegistry.find("reactor.netty.connection.provider.max.connections")
+				.tag("name", "pooled-route")
+				.gauge());
+	}
+
+	@Test
+	void keepSharedClientWithoutRouteSettings() {
+		MockServerWebExchange exchange = exchange(Map.of());
+
+		filter.filter(exchange, ignored -> Mono.empty()).block();
+		consume(exchange);
+
+		Assertions.assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+		Assertions.assertEquals(List.of("http1"), List.copyOf(backendProtocols));
+	}
+
+	private MockServerWebExchange exchange(Map<String, Object> metadata) {
+		URI uri = URI.create("http://localhost:" + backend.port() + "/api/users");
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri.toString()));
+		Route route = Route.async()
+				.id(metadata.isEmpty() ? "shared-route" : "pooled-route")
+				.uri(uri)
+				.predicate(ignored -> true)
+				.metadata(metadata)
+				.build();
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+		exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, uri);
+		return exchange;
+	}
+
+	// The gateway's write filter normally drains the backend response and hands the connection back
+	private static void consume(MockServerWebExchange exchange) {
+		Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+		Assertions.assertNotNull(connection);
+		connection.inbound().receive().aggregate().asString().block();
+	}
+}
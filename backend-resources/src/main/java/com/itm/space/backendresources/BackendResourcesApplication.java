@@ -2,12 +2,17 @@ package com.itm.space.backendresources;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class BackendResourcesApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(BackendResourcesApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(BackendResourcesApplication.class, args);
+        // Training run of the fast-startup profile: stop once started so that the JVM writes its CDS archive
+        if (context.getEnvironment().getProperty("startup.training-run", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
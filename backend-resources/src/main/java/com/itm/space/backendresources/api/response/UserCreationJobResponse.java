@@ -0,0 +1,19 @@
+package com.itm.space.backendresources.api.response;
+
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+public class UserCreationJobResponse {
+    private final UUID id;
+    private final State state;
+    /**
+     * Outcome of the creation, as for a batch item; {@code null} while the job is queued or running.
+     */
+    private final UserCreationResult result;
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+}
@@ -0,0 +1,21 @@
+package com.itm.space.backendresources.api.response;
+
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+
+import java.util.UUID;
+
+@Data
+public class UserCreationResult {
+    private final UUID id;
+    private final int status;
+    private final String message;
+
+    public static UserCreationResult created(UUID id) {
+        return new UserCreationResult(id, HttpStatus.CREATED.value(), null);
+    }
+
+    public static UserCreationResult failed(HttpStatus status, String message) {
+        return new UserCreationResult(null, status.value(), message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.itm.space.backendresources.api.response;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+public class UserLookupResponse {
+    private final Map<UUID, UserResponse> users;
+    private final List<UUID> notFound;
+}
@@ -0,0 +1,19 @@
+package com.itm.space.backendresources.api.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserSummaryResponse {
+    private final UUID id;
+    private final String username;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final List<String> roles;
+    private final List<String> groups;
+}
@@ -0,0 +1,111 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.controller.ApiMode;
+import com.itm.space.backendresources.controller.RespondAsync;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.mvc.condition.AbstractRequestCondition;
+import org.springframework.web.servlet.mvc.condition.RequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects the handler methods of {@code users.api.mode}: {@code blocking} (the default) answers on the
+ * request thread, {@code reactive} returns futures so that waiting for Keycloak does not hold a thread.
+ * <p>
+ * Also maps {@link RespondAsync} methods by the preferences of the {@code Prefer} header, which a
+ * {@code headers} condition can only compare as a whole.
+ */
+@Configuration
+public class ApiModeConfiguration {
+    private static final Set<String> MODES = Set.of(ApiMode.BLOCKING, ApiMode.REACTIVE);
+
+    @Bean
+    public WebMvcRegistrations apiModeRegistrations(@Value("${users.api.mode:blocking}") String apiMode) {
+        if (!MODES.contains(apiMode)) {
+            throw new IllegalStateException("users.api.mode must be one of " + MODES + ", not " + apiMode);
+        }
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerMapping getRequestMappingHandlerMapping() {
+                return new ApiModeHandlerMapping(apiMode);
+            }
+        };
+    }
+
+    private static final class ApiModeHandlerMapping extends RequestMappingHandlerMapping {
+        private final String apiMode;
+
+        private ApiModeHandlerMapping(String apiMode) {
+            this.apiMode = apiMode;
+        }
+
+        @Override
+        protected RequestMappingInfo getMappingForMethod(Method method, Class<?> handlerType) {
+            ApiMode mode = AnnotatedElementUtils.findMergedAnnotation(method, ApiMode.class);
+            if (mode != null && !mode.value().equals(apiMode)) {
+                return null;
+            }
+            return super.getMappingForMethod(method, handlerType);
+        }
+
+        @Override
+        protected RequestCondition<?> getCustomMethodCondition(Method method) {
+            return AnnotatedElementUtils.hasAnnotation(method, RespondAsync.class) ? new RespondAsyncCondition() : null;
+        }
+    }
+
+    private static final class RespondAsyncCondition extends AbstractRequestCondition<RespondAsyncCondition> {
+        private static final String PREFER = "Prefer";
+        private static final String RESPOND_ASYNC = "respond-async";
+
+        @Override
+        protected Collection<String> getContent() {
+            return List.of(PREFER + "=" + RESPOND_ASYNC);
+        }
+
+        @Override
+        protected String getToStringInfix() {
+            return " && ";
+        }
+
+        @Override
+        public RespondAsyncCondition combine(RespondAsyncCondition other) {
+            return this;
+        }
+
+        @Override
+        public RespondAsyncCondition getMatchingCondition(HttpServletRequest request) {
+            if (CorsUtils.isPreFlightRequest(request)) {
+                return this;
+            }
+            Enumeration<String> headers = request.getHeaders(PREFER);
+            while (headers.hasMoreElements()) {
+                // preference = token [ BWS "=" BWS word ] *( OWS ";" [ OWS parameter ] ), RFC 7240
+                for (String preference : headers.nextElement().split(",")) {
+                    String name = preference.split("[=;]", 2)[0].trim();
+                    if (name.equalsIgnoreCase(RESPOND_ASYNC)) {
+                        return this;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int compareTo(RespondAsyncCondition other, HttpServletRequest request) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.itm.space.backendresources.configuration;
+
+import com.itm.space.backendresources.security.CachingJwtDecoder;
+import com.itm.space.backendresources.security.RefreshingJwkSource;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@Configuration
+public class JwtDecoderConfiguration {
+    // Discovery runs on the first decode, under the key source's lock: a silent issuer must not hold it forever
+    private static final Duration DISCOVERY_CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration DISCOVERY_READ_TIMEOUT = Duration.ofSeconds(2);
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
+    private String issuerUri;
+    @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:}")
+    private String jwkSetUri;
+    @Value("${security.jwt.jwks-file:#{null}}")
+    private Resource jwksFile;
+    @Value("${security.jwt.jwks-refresh-interval:5m}")
+    private Duration jwksRefreshInterval;
+    @Value("${security.jwt.jwks-min-refresh-interval:30s}")
+    private Duration jwksMinRefreshInterval;
+    @Value("${security.jwt.decoded-cache.maximum-size:10000}")
+    private long decodedCacheMaximumSize;
+
+    @Bean
+    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource, MeterRegistry meterRegistry) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are validated by Spring Security's validators below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        jwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        CachingJwtDecoder cachingJwtDecoder = new CachingJwtDecoder(jwtDecoder, decodedCacheMaximumSize);
+        Timer decodeTimer = Timer.builder("security.jwt.decode")
+                .description("Decoding and verification of bearer tokens, including cache hits")
+                .register(meterRegistry);
+        return token -> decodeTimer.record(() -> cachingJwtDecoder.decode(token));
+    }
+
+    /**
+     * Keys come from {@code security.jwt.jwks-file} when set, otherwise from the configured
+     * {@code jwk-set-uri}, otherwise from the issuer's discovery document, resolved on first use.
+     */
+    @Bean
+    public JWKSource<SecurityContext> jwkSource(RestTemplateBuilder restTemplateBuilder)
+            throws IOException, ParseException {
+        if (jwksFile != null) {
+            try (InputStream inputStream = jwksFile.getInputStream()) {
+                return new ImmutableJWKSet<>(JWKSet.load(inputStream));
+            }
+        }
+        RestTemplate restTemplate = restTemplateBuilder
+                .setConnectTimeout(DISCOVERY_CONNECT_TIMEOUT)
+                .setReadTimeout(DISCOVERY_READ_TIMEOUT)
+                .build();
+        Supplier<URL> jwkSetUrlResolver = StringUtils.hasText(jwkSetUri)
+                ? () -> toUrl(jwkSetUri)
+                : () -> discoverJwkSetUrl(restTemplate);
+        return new RefreshingJwkSource(jwkSetUrlResolver, jwksRefreshInterval, jwksMinRefreshInterval);
+    }
+
+    private URL discoverJwkSetUrl(RestTemplate restTemplate) {
+        Map<?, ?> configuration = restTemplate
+                .getForObject(issuerUri + "/.well-known/openid-configuration", Map.class);
+        Object jwksUri = configuration != null ? configuration.get("jwks_uri") : null;
+        if (jwksUri == null) {
+            throw new IllegalStateException("Issuer " + issuerUri + " does not advertise a jwks_uri");
+        }
+        return toUrl(jwksUri.toString());
+    }
+
+    private static URL toUrl(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package com.itm.space.backendresources.configuration;
 
+import com.itm.space.backendresources.security.ServiceAccountTokenManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.Client;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
-import static org.keycloak.OAuth2Constants.CLIENT_CREDENTIALS;
 import static org.keycloak.OAuth2Constants.PASSWORD;
 
 @Configuration
+@ImportRuntimeHints(KeycloakRuntimeHints.class)
 public class KeycloakClientConfiguration {
     @Value("${keycloak.credentials.secret}")
     private String secretKey;
@@ -20,14 +38,91 @@ public class KeycloakClientConfiguration {
     @Value("${keycloak.realm}")
     private String realm;
 
+    @Value("${keycloak.http.max-connections:64}")
+    private int maxConnections;
+    @Value("${keycloak.http.max-connections-per-route:64}")
+    private int maxConnectionsPerRoute;
+    @Value("${keycloak.http.keep-alive:30s}")
+    private Duration keepAlive;
+    @Value("${keycloak.http.max-idle-time:60s}")
+    private Duration maxIdleTime;
+    @Value("${keycloak.http.connection-ttl:10m}")
+    private Duration connectionTtl;
+    @Value("${keycloak.http.connect-timeout:2s}")
+    private Duration connectTimeout;
+    @Value("${keycloak.http.read-timeout:5s}")
+    private Duration readTimeout;
+    @Value("${keycloak.http.pool-acquire-timeout:2s}")
+    private Duration poolAcquireTimeout;
+    @Value("${keycloak.http.compression:false}")
+    private boolean compression;
+    @Value("${keycloak.token.refresh-ratio:0.8}")
+    private double tokenRefreshRatio;
+
+    /**
+     * The admin client does not manage its token itself: it is built with a placeholder authorization,
+     * which {@link ServiceAccountTokenManager} replaces with the current service-account token on every call.
+     */
     @Bean
-    public Keycloak keycloak() {
+    public Keycloak keycloak(PoolingHttpClientConnectionManager keycloakConnectionManager,
+                             ServiceAccountTokenManager serviceAccountTokenManager) {
         return KeycloakBuilder.builder()
                 .serverUrl(authUrl)
                 .realm(realm)
-                .grantType(CLIENT_CREDENTIALS)
-                .clientId(clientId)
-                .clientSecret(secretKey)
+                .authorization("service-account")
+                .resteasyClient(resteasyClient(keycloakConnectionManager, serviceAccountTokenManager))
+                .build();
+    }
+
+    @Bean
+    public ServiceAccountTokenManager serviceAccountTokenManager() {
+        return new ServiceAccountTokenManager(authUrl, realm, clientId, secretKey,
+                tokenRefreshRatio, connectTimeout, readTimeout);
+    }
+
+    /**
+     * Connection pool shared by every Keycloak admin call. Its utilisation is published as the
+     * {@code httpcomponents.httpclient.pool.*} gauges with {@code httpclient=keycloak}.
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager keycloakConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(connectionTtl.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "keycloak").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    private Client resteasyClient(PoolingHttpClientConnectionManager connectionManager,
+                                  ServiceAccountTokenManager serviceAccountTokenManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .setConnectionRequestTimeout((int) poolAcquireTimeout.toMillis())
                 .build();
+        HttpClientBuilder httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(maxIdleTime.toMillis(), TimeUnit.MILLISECONDS);
+        if (!compression) {
+            httpClient.disableContentCompression();
+        }
+        return new ResteasyClientBuilder()
+                .httpEngine(new ApacheHttpClient43Engine(httpClient.build(), true))
+                .register(JacksonProvider.class, 100)
+                // Runs after the admin client's own bearer filter so that its header is overwritten
+                .register(serviceAccountTokenManager, Priorities.USER + 1)
+                .build();
+    }
+
+    // Honour the server's Keep-Alive header, otherwise keep idle connections for keycloak.http.keep-alive
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? serverKeepAlive : keepAlive.toMillis();
+        };
     }
 }
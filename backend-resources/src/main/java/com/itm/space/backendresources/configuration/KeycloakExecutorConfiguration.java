@@ -0,0 +1,33 @@
+package com.itm.space.backendresources.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class KeycloakExecutorConfiguration {
+    @Value("${keycloak.executor.pool-size:32}")
+    private int poolSize;
+    @Value("${keycloak.executor.queue-capacity:256}")
+    private int queueCapacity;
+
+    /**
+     * Bounded pool for blocking Keycloak admin calls. When the queue is full further calls are rejected, which
+     * the user service answers with 503: running them on the caller instead would block the request thread
+     * before the call timeout is attached.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor keycloakExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("keycloak-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
@@ -0,0 +1,82 @@
+package com.itm.space.backendresources.configuration;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
+
+@Configuration
+public class KeycloakResilienceConfiguration {
+    @Value("${keycloak.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+    @Value("${keycloak.circuit-breaker.slow-call-duration-threshold:${keycloak.call-timeout:5s}}")
+    private Duration slowCallDurationThreshold;
+    @Value("${keycloak.circuit-breaker.sliding-window-size:50}")
+    private int slidingWindowSize;
+    @Value("${keycloak.circuit-breaker.minimum-number-of-calls:20}")
+    private int minimumNumberOfCalls;
+    @Value("${keycloak.circuit-breaker.wait-duration-in-open-state:10s}")
+    private Duration waitDurationInOpenState;
+    @Value("${keycloak.circuit-breaker.permitted-calls-in-half-open-state:5}")
+    private int permittedCallsInHalfOpenState;
+    @Value("${keycloak.bulkhead.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
+
+    /**
+     * Keycloak answering 4xx (unknown user, duplicate username, ...) is a healthy Keycloak, so only
+     * connection errors, timeouts and 5xx count as failures.
+     */
+    @Bean
+    public CircuitBreakerRegistry keycloakCircuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDurationThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .recordException(KeycloakResilienceConfiguration::isKeycloakFailure)
+                .build();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    private static boolean isKeycloakFailure(Throwable ex) {
+        if (ex instanceof WebApplicationException webEx) {
+            return webEx.getResponse().getStatus() >= 500;
+        }
+        if (ex instanceof WebClientResponseException webClientEx) {
+            return webClientEx.getStatusCode().is5xxServerError();
+        }
+        return true;
+    }
+
+    /**
+     * Default limit for every operation; {@code keycloak.bulkhead.<operation>.max-concurrent-calls}
+     * overrides it for a single operation. Calls over the limit are rejected at once: waiting for a permit
+     * would block the event loop on the reactive path. Operations that are fanned out get at least
+     * {@code keycloak.bulkhead.concurrent-fan-outs} times the fan-out's parallelism (see
+     * {@code KeycloakCallGuard}), so that a single lookup, list or batch does not exhaust them.
+     */
+    @Bean
+    public BulkheadRegistry keycloakBulkheadRegistry(MeterRegistry meterRegistry) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+        BulkheadRegistry registry = BulkheadRegistry.of(config);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+}
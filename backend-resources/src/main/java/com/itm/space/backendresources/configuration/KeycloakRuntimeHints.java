@@ -0,0 +1,47 @@
+package com.itm.space.backendresources.configuration;
+
+import org.jboss.resteasy.client.jaxrs.internal.proxy.ResteasyClientProxy;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.RealmsResource;
+import org.keycloak.admin.client.resource.RoleMappingResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.admin.client.token.TokenService;
+import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.MappingsRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+/**
+ * What the Keycloak admin client does reflectively, for AOT-processed and native builds: RESTEasy builds
+ * every admin resource as a JDK proxy of its annotated interface, finds its providers through
+ * {@code META-INF/services}, and Jackson binds the representations.
+ */
+public class KeycloakRuntimeHints implements RuntimeHintsRegistrar {
+    static final List<Class<?>> RESOURCES = List.of(RealmsResource.class, RealmResource.class,
+            UsersResource.class, UserResource.class, RoleMappingResource.class, TokenService.class);
+    static final List<Class<?>> REPRESENTATIONS = List.of(UserRepresentation.class,
+            CredentialRepresentation.class, RoleRepresentation.class, GroupRepresentation.class,
+            MappingsRepresentation.class, AccessTokenResponse.class);
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> resource : RESOURCES) {
+            hints.proxies().registerJdkProxy(resource, ResteasyClientProxy.class);
+            hints.reflection().registerType(resource, MemberCategory.INTROSPECT_PUBLIC_METHODS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        bindingRegistrar.registerReflectionHints(hints.reflection(), REPRESENTATIONS.toArray(Class<?>[]::new));
+        hints.resources().registerPattern("META-INF/services/javax.ws.rs.*");
+    }
+}
@@ -0,0 +1,79 @@
+package com.itm.space.backendresources.configuration;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Non-blocking HTTP client for the Keycloak admin API, used when {@code users.api.mode} is {@code reactive}.
+ * It takes the same {@code keycloak.http.*} settings as the RESTEasy client, which stays in use for the
+ * batch and list operations.
+ */
+@Configuration
+@ConditionalOnProperty(name = "users.api.mode", havingValue = "reactive")
+public class KeycloakWebClientConfiguration {
+    @Value("${keycloak.auth-server-url}")
+    private String authUrl;
+    @Value("${keycloak.realm}")
+    private String realm;
+
+    @Value("${keycloak.http.max-connections-per-route:64}")
+    private int maxConnectionsPerRoute;
+    @Value("${keycloak.http.max-idle-time:60s}")
+    private Duration maxIdleTime;
+    @Value("${keycloak.http.connection-ttl:10m}")
+    private Duration connectionTtl;
+    @Value("${keycloak.http.connect-timeout:2s}")
+    private Duration connectTimeout;
+    @Value("${keycloak.http.read-timeout:5s}")
+    private Duration readTimeout;
+    @Value("${keycloak.http.pool-acquire-timeout:2s}")
+    private Duration poolAcquireTimeout;
+    @Value("${keycloak.http.compression:false}")
+    private boolean compression;
+
+    // Reactor Netty keeps one pool per remote address, so the per-route limit is the one that applies
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider keycloakConnectionProvider() {
+        return ConnectionProvider.builder("keycloak")
+                .maxConnections(maxConnectionsPerRoute)
+                .pendingAcquireTimeout(poolAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(connectionTtl)
+                .evictInBackground(maxIdleTime)
+                .build();
+    }
+
+    @Bean
+    public WebClient keycloakWebClient(WebClient.Builder webClientBuilder,
+                                       ConnectionProvider keycloakConnectionProvider,
+                                       ObjectMapper objectMapper) {
+        HttpClient httpClient = HttpClient.create(keycloakConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout)
+                .compress(compression);
+        // Like the admin client's JacksonProvider: leave unset fields out of the representations sent
+        ObjectMapper keycloakObjectMapper = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        return webClientBuilder
+                .baseUrl(authUrl + "/admin/realms/" + realm)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(keycloakObjectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(keycloakObjectMapper));
+                })
+                .build();
+    }
+}
@@ -1,47 +1,47 @@
 package com.itm.space.backendresources.configuration;
 
+import com.itm.space.backendresources.security.KeycloakJwtAuthenticationConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.SecurityFilterChain;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true)
 public class SecurityConfiguration {
+    @Value("${security.jwt.authorities-cache.maximum-tokens:10000}")
+    private long maximumTokens;
+    @Value("${security.jwt.authorities-cache.maximum-role-sets:1024}")
+    private long maximumRoleSets;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   KeycloakJwtAuthenticationConverter jwtAuthenticationConverter,
+                                                   MeterRegistry meterRegistry)
+            throws Exception {
+        Timer conversionTimer = Timer.builder("security.jwt.conversion")
+                .description("Mapping of decoded JWTs to authentication tokens")
+                .register(meterRegistry);
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(requests -> requests
                         .anyRequest().permitAll())
                 .oauth2ResourceServer()
                 .jwt()
-                .jwtAuthenticationConverter(SecurityConfiguration::convertJwtToken);
+                .jwtAuthenticationConverter(jwt ->
+                        conversionTimer.record(() -> jwtAuthenticationConverter.convert(jwt)));
         return http.build();
     }
 
-    private static JwtAuthenticationToken convertJwtToken(Jwt jwt) {
-        Collection<GrantedAuthority> authorities = new ArrayList<>();
-        JwtAuthenticationToken authenticationToken = new JwtAuthenticationToken(jwt, authorities);
-        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
-        List<String> roles = (List<String>) realmAccess.get("roles");
-        for (String role : roles) {
-            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
-        }
-        return new JwtAuthenticationToken(jwt, authorities, authenticationToken.getName());
+    @Bean
+    public KeycloakJwtAuthenticationConverter jwtAuthenticationConverter() {
+        return new KeycloakJwtAuthenticationConverter(maximumTokens, maximumRoleSets);
     }
 }
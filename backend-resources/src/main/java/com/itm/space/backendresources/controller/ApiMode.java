@@ -0,0 +1,21 @@
+package com.itm.space.backendresources.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a handler method only when {@code users.api.mode} is {@link #value()}, so that the blocking and the
+ * reactive variant of an endpoint can share its path. Methods without it are mapped in every mode.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ApiMode {
+    String BLOCKING = "blocking";
+    String REACTIVE = "reactive";
+
+    String value();
+}
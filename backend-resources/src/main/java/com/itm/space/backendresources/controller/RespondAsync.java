@@ -0,0 +1,18 @@
+package com.itm.space.backendresources.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a handler method only for requests whose {@code Prefer} header asks for {@code respond-async}, alone or
+ * among other preferences (e.g. {@code Prefer: respond-async, wait=10}). Such a method wins over a mapping of
+ * the same path without it.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RespondAsync {
+}
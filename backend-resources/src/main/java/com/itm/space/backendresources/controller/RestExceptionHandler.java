@@ -16,7 +16,9 @@ public class RestExceptionHandler {
 
     @ExceptionHandler(BackendResourcesException.class)
     public ResponseEntity<String> handleException(BackendResourcesException backendResourcesException) {
-        return new ResponseEntity<>(backendResourcesException.getMessage(), backendResourcesException.getHttpStatus());
+        HttpStatus status = backendResourcesException.getHttpStatus();
+        return new ResponseEntity<>(backendResourcesException.getMessage(),
+                status != null ? status : HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
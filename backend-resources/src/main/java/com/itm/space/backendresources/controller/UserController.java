@@ -1,11 +1,22 @@
 package com.itm.space.backendresources.controller;
 
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationJobResponse;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.api.response.UserLookupResponse;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.service.UserCreationJobService;
 import com.itm.space.backendresources.service.UserService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -13,30 +24,130 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final UserCreationJobService userCreationJobService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${users.http.max-age:0s}")
+    private Duration userMaxAge;
 
     @PostMapping
+    @ApiMode(ApiMode.BLOCKING)
     @Secured("ROLE_MODERATOR")
     @SecurityRequirement(name = "oauth2_auth_code")
     public void create(@RequestBody @Valid UserRequest userRequest) {
         userService.createUser(userRequest);
     }
 
+    @PostMapping
+    @ApiMode(ApiMode.REACTIVE)
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public CompletableFuture<ResponseEntity<Void>> createAsync(@RequestBody @Valid UserRequest userRequest) {
+        return userService.createUserAsync(userRequest).thenApply(id -> ResponseEntity.ok().build());
+    }
+
+    /**
+     * Accepts the user for creation in the background and answers 202 with the job, whose state is then
+     * available at the {@code Location}. Retries carrying the same {@code Idempotency-Key} get the same job.
+     */
+    @PostMapping
+    @RespondAsync
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public ResponseEntity<UserCreationJobResponse> createJob(
+            @RequestBody @Valid UserRequest userRequest,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal) {
+        UserCreationJobResponse job = userCreationJobService.submit(userRequest, principal.getName(), idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .path("/jobs/{id}")
+                        .buildAndExpand(job.getId())
+                        .toUri())
+                .header("Preference-Applied", "respond-async")
+                .body(job);
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public UserCreationJobResponse getJob(@PathVariable UUID id) {
+        return userCreationJobService.getJob(id)
+                .orElseThrow(() -> new BackendResourcesException("Job not found", HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping("/batch")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public List<UserCreationResult> createBatch(@RequestBody List<UserRequest> userRequests) {
+        return userService.createUsers(userRequests);
+    }
+
+    /**
+     * Streams every user of the realm as newline-delimited JSON. {@code include} accepts {@code roles}
+     * and {@code groups}.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public ResponseEntity<StreamingResponseBody> listUsers(
+            @RequestParam(required = false, defaultValue = "") Set<String> include) {
+        boolean includeRoles = include.contains("roles");
+        boolean includeGroups = include.contains("groups");
+        StreamingResponseBody body = outputStream -> userService.streamUsers(includeRoles, includeGroups,
+                user -> writeLine(outputStream, user));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(params = "ids")
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public UserLookupResponse getUsersByIds(@RequestParam List<UUID> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    /**
+     * Returns the user with a strong {@code ETag}. A request whose {@code If-None-Match} still matches is
+     * answered with 304 Not Modified and no body.
+     */
     @GetMapping("/{id}")
+    @ApiMode(ApiMode.BLOCKING)
     @Secured("ROLE_MODERATOR")
     @SecurityRequirement(name = "oauth2_auth_code")
-    public UserResponse getUserById(@PathVariable UUID id) {
-        return userService.getUserById(id);
+    public ResponseEntity<UserResponse> getUserById(@PathVariable UUID id) {
+        return userEntity(userService.getUserById(id));
+    }
+
+    @GetMapping("/{id}")
+    @ApiMode(ApiMode.REACTIVE)
+    @Secured("ROLE_MODERATOR")
+    @SecurityRequirement(name = "oauth2_auth_code")
+    public CompletableFuture<ResponseEntity<UserResponse>> getUserByIdAsync(@PathVariable UUID id) {
+        return userService.getUserByIdAsync(id).thenApply(this::userEntity);
     }
 
     @GetMapping("/hello")
@@ -45,4 +156,30 @@ public class UserController {
     public String hello() {
         return SecurityContextHolder.getContext().getAuthentication().getName();
     }
+
+    private ResponseEntity<UserResponse> userEntity(UserResponse user) {
+        // Spring compares the ETag with If-None-Match and skips serialization when it matches
+        UserResponse body = UserETags.canonical(user);
+        return ResponseEntity.ok()
+                .eTag(UserETags.of(body))
+                .cacheControl(userCacheControl())
+                .body(body);
+    }
+
+    private CacheControl userCacheControl() {
+        // Profiles are per-moderator views of personal data: only private caches may keep them
+        CacheControl cacheControl = userMaxAge.isZero()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(userMaxAge);
+        return cacheControl.cachePrivate();
+    }
+
+    private void writeLine(OutputStream outputStream, Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package com.itm.space.backendresources.controller;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Strong entity tags for {@link UserResponse}. The tag is a SHA-256 over the response fields. A strong tag
+ * promises byte-identical bodies, so responses are first brought into {@link #canonical} form: Keycloak returning
+ * roles or groups in a different order then changes neither the body nor the tag.
+ */
+final class UserETags {
+    private static final byte NULL = 0;
+    private static final byte PRESENT = 1;
+
+    private UserETags() {
+    }
+
+    /**
+     * The user with roles and groups sorted, as it is both tagged and sent.
+     */
+    static UserResponse canonical(UserResponse user) {
+        return new UserResponse(user.getFirstName(), user.getLastName(), user.getEmail(),
+                sorted(user.getRoles()), sorted(user.getGroups()));
+    }
+
+    /**
+     * The tag of a user in {@link #canonical} form.
+     */
+    static String of(UserResponse user) {
+        MessageDigest digest = sha256();
+        update(digest, user.getFirstName());
+        update(digest, user.getLastName());
+        update(digest, user.getEmail());
+        update(digest, user.getRoles());
+        update(digest, user.getGroups());
+        return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + '"';
+    }
+
+    private static List<String> sorted(List<String> values) {
+        return values == null ? null : values.stream().sorted(Comparator.nullsFirst(Comparator.naturalOrder())).toList();
+    }
+
+    private static void update(MessageDigest digest, Collection<String> values) {
+        if (values == null) {
+            digest.update(NULL);
+            return;
+        }
+        digest.update(PRESENT);
+        updateLength(digest, values.size());
+        values.forEach(value -> update(digest, value));
+    }
+
+    // Length-prefixed so that adjacent fields cannot run into each other ("ab" + "c" vs "a" + "bc")
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(PRESENT);
+        updateLength(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateLength(MessageDigest digest, int length) {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
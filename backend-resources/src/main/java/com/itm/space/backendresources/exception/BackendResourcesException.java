@@ -3,13 +3,17 @@ package com.itm.space.backendresources.exception;
 import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
+/**
+ * Client errors (4xx) such as an unknown id or a duplicate user are expected outcomes and are created
+ * without a stack trace: filling it in would cost more than answering the request.
+ */
 @Getter
 public class BackendResourcesException extends RuntimeException {
 
     private final HttpStatus httpStatus;
 
     public BackendResourcesException(String message, HttpStatus httpStatus) {
-        super(message);
+        super(message, null, true, httpStatus == null || !httpStatus.is4xxClientError());
         this.httpStatus = httpStatus;
     }
 }
@@ -1,6 +1,7 @@
 package com.itm.space.backendresources.mapper;
 
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UserSummaryResponse;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
@@ -21,13 +22,25 @@ public interface UserMapper {
                                                   List<RoleRepresentation> roleList,
                                                   List<GroupRepresentation> groupList);
 
+    @Mapping(target = "roles", source = "roleList", qualifiedByName = "mapRoleRepresentationToString")
+    @Mapping(target = "groups", source = "groupList", qualifiedByName = "mapGroupRepresentationToString")
+    UserSummaryResponse userRepresentationToUserSummary(UserRepresentation userRepresentation,
+                                                        List<RoleRepresentation> roleList,
+                                                        List<GroupRepresentation> groupList);
+
     @Named("mapRoleRepresentationToString")
     default List<String> mapRoleRepresentationToString(List<RoleRepresentation> roleList) {
+        if (roleList == null) {
+            return null;
+        }
         return roleList.stream().map(RoleRepresentation::getName).toList();
     }
 
     @Named("mapGroupRepresentationToString")
     default List<String> mapGroupRepresentationToString(List<GroupRepresentation> groupList) {
+        if (groupList == null) {
+            return null;
+        }
         return groupList.stream().map(GroupRepresentation::getName).toList();
     }
 
@@ -0,0 +1,119 @@
+package com.itm.space.backendresources.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maps Keycloak realm roles ({@code realm_access.roles}) to {@code ROLE_*} authorities.
+ * <p>
+ * The authority list is built once per distinct role list and shared, and is remembered per token id
+ * ({@code jti}) until the token expires. Only the {@link JwtAuthenticationToken} itself is created per
+ * request, because Spring Security sets request details on it. Tokens without realm roles get no authorities.
+ */
+public class KeycloakJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+    private static final String REALM_ACCESS_CLAIM = "realm_access";
+    private static final String ROLES_CLAIM = "roles";
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final Cache<String, TokenAuthorities> authoritiesByTokenId;
+    private final Cache<List<?>, List<GrantedAuthority>> authoritiesByRoles;
+    private final Cache<String, GrantedAuthority> authorityByRole;
+
+    public KeycloakJwtAuthenticationConverter(long maximumTokens, long maximumRoleSets) {
+        this.authoritiesByTokenId = Caffeine.newBuilder()
+                .maximumSize(maximumTokens)
+                .expireAfter(new UntilTokenExpires())
+                .build();
+        this.authoritiesByRoles = Caffeine.newBuilder()
+                .maximumSize(maximumRoleSets)
+                .build();
+        this.authorityByRole = Caffeine.newBuilder()
+                .maximumSize(maximumRoleSets)
+                .build();
+    }
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        return new JwtAuthenticationToken(jwt, getAuthorities(jwt));
+    }
+
+    public Collection<GrantedAuthority> getAuthorities(Jwt jwt) {
+        String tokenId = jwt.getId();
+        if (tokenId == null || jwt.getExpiresAt() == null) {
+            return authoritiesForRoles(realmRoles(jwt));
+        }
+        return authoritiesByTokenId.get(tokenId,
+                id -> new TokenAuthorities(authoritiesForRoles(realmRoles(jwt)), jwt.getExpiresAt())).authorities();
+    }
+
+    private List<GrantedAuthority> authoritiesForRoles(List<?> roles) {
+        if (roles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<GrantedAuthority> authorities = authoritiesByRoles.getIfPresent(roles);
+        if (authorities == null) {
+            List<GrantedAuthority> created = new ArrayList<>(roles.size());
+            for (Object role : roles) {
+                created.add(authorityByRole.get(String.valueOf(role),
+                        name -> new SimpleGrantedAuthority(ROLE_PREFIX + name)));
+            }
+            authorities = Collections.unmodifiableList(created);
+            authoritiesByRoles.put(List.copyOf(roles), authorities);
+        }
+        return authorities;
+    }
+
+    private static List<?> realmRoles(Jwt jwt) {
+        Object realmAccess = jwt.getClaims().get(REALM_ACCESS_CLAIM);
+        if (!(realmAccess instanceof Map<?, ?> realmAccessMap)) {
+            return Collections.emptyList();
+        }
+        Object roles = realmAccessMap.get(ROLES_CLAIM);
+        if (!(roles instanceof List<?> roleList)) {
+            return Collections.emptyList();
+        }
+        // The role list is copied as a cache key, and List.copyOf rejects null elements
+        if (roleList.stream().anyMatch(Objects::isNull)) {
+            return roleList.stream().filter(Objects::nonNull).toList();
+        }
+        return roleList;
+    }
+
+    private record TokenAuthorities(List<GrantedAuthority> authorities, Instant expiresAt) {
+    }
+
+    private static class UntilTokenExpires implements Expiry<String, TokenAuthorities> {
+        @Override
+        public long expireAfterCreate(String tokenId, TokenAuthorities value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenId, TokenAuthorities value, long currentTime,
+                                      long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String tokenId, TokenAuthorities value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.itm.space.backendresources.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Remote JWK set that is refreshed in the background instead of on the request path.
+ * <p>
+ * The JWK set URL is resolved on first use, so the service starts even if Keycloak is down. A token signed
+ * with an unknown key id triggers one extra refresh, which picks up rotated keys; such refreshes are limited
+ * to one per {@code minRefreshInterval}.
+ */
+@Slf4j
+public class RefreshingJwkSource implements JWKSource<SecurityContext>, AutoCloseable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final int READ_TIMEOUT_MILLIS = 2_000;
+    private static final int SIZE_LIMIT_BYTES = 50 * 1024;
+
+    private final Supplier<URL> jwkSetUrlResolver;
+    private final Duration minRefreshInterval;
+    private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler;
+
+    private volatile URL jwkSetUrl;
+    private long lastLoadNanos;
+
+    public RefreshingJwkSource(Supplier<URL> jwkSetUrlResolver, Duration refreshInterval, Duration minRefreshInterval) {
+        this.jwkSetUrlResolver = jwkSetUrlResolver;
+        this.minRefreshInterval = minRefreshInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshInBackground, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        JWKSet current = jwkSet.get();
+        if (current != null) {
+            List<JWK> keys = jwkSelector.select(current);
+            if (!keys.isEmpty()) {
+                return keys;
+            }
+        }
+        return jwkSelector.select(refreshOnMiss(current));
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized JWKSet refreshOnMiss(JWKSet seen) throws KeySourceException {
+        JWKSet current = jwkSet.get();
+        if (current != seen) {
+            return current;
+        }
+        if (lastLoadNanos != 0 && System.nanoTime() - lastLoadNanos < minRefreshInterval.toNanos()) {
+            if (current == null) {
+                throw new KeySourceException("JWK set is not available yet");
+            }
+            return current;
+        }
+        return load();
+    }
+
+    private synchronized void refreshInBackground() {
+        try {
+            load();
+        } catch (KeySourceException ex) {
+            log.warn("Unable to refresh JWK set: {}", ex.getMessage());
+        }
+    }
+
+    private JWKSet load() throws KeySourceException {
+        lastLoadNanos = System.nanoTime();
+        try {
+            JWKSet loaded = JWKSet.load(resolveJwkSetUrl(), CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS, SIZE_LIMIT_BYTES);
+            jwkSet.set(loaded);
+            return loaded;
+        } catch (IOException | ParseException | RuntimeException ex) {
+            throw new KeySourceException("Unable to load JWK set: " + ex.getMessage(), ex);
+        }
+    }
+
+    private URL resolveJwkSetUrl() {
+        if (jwkSetUrl == null) {
+            jwkSetUrl = jwkSetUrlResolver.get();
+        }
+        return jwkSetUrl;
+    }
+}
@@ -0,0 +1,176 @@
+package com.itm.space.backendresources.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.keycloak.admin.client.JacksonProvider;
+import org.keycloak.admin.client.token.TokenService;
+import org.keycloak.representations.AccessTokenResponse;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.keycloak.OAuth2Constants.CLIENT_CREDENTIALS;
+import static org.keycloak.OAuth2Constants.CLIENT_ID;
+import static org.keycloak.OAuth2Constants.CLIENT_SECRET;
+import static org.keycloak.OAuth2Constants.GRANT_TYPE;
+
+/**
+ * Keeps the service-account token of the admin client fresh outside request threads.
+ * <p>
+ * The token is refreshed in the background once {@code refreshRatio} of its lifetime has passed, and
+ * request threads read it from an atomic reference without locking. Only when no valid token exists does a
+ * request thread fetch one itself; concurrent fetches collapse into one. As a {@link ClientRequestFilter}
+ * it sets the {@code Authorization} header of every admin call.
+ */
+@Slf4j
+public class ServiceAccountTokenManager implements ClientRequestFilter, AutoCloseable {
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final String realm;
+    private final Form credentials;
+    private final double refreshRatio;
+    private final ResteasyClient tokenClient;
+    private final TokenService tokenService;
+    private final AtomicReference<ServiceAccountToken> token = new AtomicReference<>();
+    // The token the filter last attached on this thread, i.e. the one a 401 answer rejected
+    private final ThreadLocal<ServiceAccountToken> attached = new ThreadLocal<>();
+    private final ScheduledExecutorService scheduler;
+
+    public ServiceAccountTokenManager(String serverUrl, String realm, String clientId, String clientSecret,
+                                      double refreshRatio, Duration connectTimeout, Duration readTimeout) {
+        this.realm = realm;
+        this.credentials = new Form()
+                .param(GRANT_TYPE, CLIENT_CREDENTIALS)
+                .param(CLIENT_ID, clientId)
+                .param(CLIENT_SECRET, clientSecret);
+        this.refreshRatio = refreshRatio;
+        this.tokenClient = new ResteasyClientBuilder()
+                .connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .register(JacksonProvider.class, 100)
+                .build();
+        this.tokenService = tokenClient.target(serverUrl).proxy(TokenService.class);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "keycloak-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::refreshInBackground);
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        ServiceAccountToken current = currentToken();
+        attached.set(current);
+        requestContext.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, "Bearer " + current.value());
+    }
+
+    public String getAccessToken() {
+        return currentToken().value();
+    }
+
+    /**
+     * The current token if it is still valid, without ever fetching one; for callers that must not block.
+     */
+    public Optional<String> getValidAccessToken() {
+        ServiceAccountToken current = token.get();
+        return current != null && !current.isExpired() ? Optional.of(current.value()) : Optional.empty();
+    }
+
+    /**
+     * Fetches a new token after Keycloak rejected {@code rejectedToken}, unless another thread already has.
+     */
+    public String refreshAccessToken(String rejectedToken) {
+        ServiceAccountToken current = token.get();
+        if (current != null && !current.value().equals(rejectedToken) && !current.isExpired()) {
+            return current.value();
+        }
+        return refresh(current).value();
+    }
+
+    /**
+     * Runs a Keycloak call and, if Keycloak answers 401, retries it once with a freshly fetched token. The
+     * token replaced is the one the filter attached to the rejected request, not whichever is current by then,
+     * so a refresh running concurrently neither skips the replacement nor makes the retry reuse the rejected
+     * token.
+     */
+    public <T> T retryOnUnauthorized(Supplier<T> call) {
+        try {
+            return call.get();
+        } catch (WebApplicationException ex) {
+            if (ex.getResponse().getStatus() != Response.Status.UNAUTHORIZED.getStatusCode()) {
+                throw ex;
+            }
+            log.warn("Keycloak rejected the service-account token, fetching a new one");
+            ServiceAccountToken rejected = attached.get();
+            refresh(rejected != null ? rejected : token.get());
+            return call.get();
+        } finally {
+            attached.remove();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        tokenClient.close();
+    }
+
+    private ServiceAccountToken currentToken() {
+        ServiceAccountToken current = token.get();
+        if (current != null && !current.isExpired()) {
+            return current;
+        }
+        return refresh(current);
+    }
+
+    private void refreshInBackground() {
+        try {
+            ServiceAccountToken refreshed = refresh(token.get());
+            scheduler.schedule(this::refreshInBackground, refreshed.refreshInNanos(), TimeUnit.NANOSECONDS);
+        } catch (RuntimeException ex) {
+            log.warn("Unable to refresh service-account token: {}", ex.getMessage());
+            scheduler.schedule(this::refreshInBackground, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Fetches a new token unless another thread already replaced {@code seen} while this one was waiting.
+     */
+    private synchronized ServiceAccountToken refresh(ServiceAccountToken seen) {
+        ServiceAccountToken current = token.get();
+        if (current != seen && current != null) {
+            return current;
+        }
+        long issuedAt = System.nanoTime();
+        AccessTokenResponse response = tokenService.grantToken(realm, credentials.asMap());
+        long lifetimeNanos = TimeUnit.SECONDS.toNanos(response.getExpiresIn());
+        ServiceAccountToken refreshed = new ServiceAccountToken(response.getToken(),
+                issuedAt + lifetimeNanos, issuedAt + (long) (lifetimeNanos * refreshRatio));
+        token.set(refreshed);
+        return refreshed;
+    }
+
+    private record ServiceAccountToken(String value, long expiresAtNanos, long refreshAtNanos) {
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+
+        long refreshInNanos() {
+            return Math.max(0, refreshAtNanos - System.nanoTime());
+        }
+    }
+}
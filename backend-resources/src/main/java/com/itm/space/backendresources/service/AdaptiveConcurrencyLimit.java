@@ -0,0 +1,36 @@
+package com.itm.space.backendresources.service;
+
+/**
+ * Concurrency limit that adapts to Keycloak with additive increase and multiplicative decrease: every
+ * {@code limit} successful calls raise it by one, a call that finds Keycloak overloaded halves it. The limit
+ * stays between {@code min} and {@code max}.
+ */
+final class AdaptiveConcurrencyLimit {
+    private final int min;
+    private final int max;
+    private double limit;
+    private int inFlight;
+
+    AdaptiveConcurrencyLimit(int initial, int min, int max) {
+        this.min = min;
+        this.max = max;
+        this.limit = Math.max(min, Math.min(max, initial));
+    }
+
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    synchronized void release(boolean overloaded) {
+        inFlight--;
+        limit = overloaded ? Math.max(min, limit / 2) : Math.min(max, limit + 1 / limit);
+        notifyAll();
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+}
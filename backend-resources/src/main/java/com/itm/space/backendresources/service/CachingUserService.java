@@ -0,0 +1,246 @@
+package com.itm.space.backendresources.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.api.response.UserLookupResponse;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UserSummaryResponse;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of {@link UserServiceImpl}. Concurrent misses for the same id share one
+ * Keycloak load; mutations evict the ids they touch. The cache holds futures, so a slow load does not block
+ * lookups of other ids while it is in flight.
+ * <p>
+ * When Keycloak is unavailable or too slow (503/504), lookups can fall back to the last response loaded
+ * for the id, kept for {@code users.cache.last-known-good.max-age} after it has left the main cache.
+ * <p>
+ * Ids Keycloak does not know are remembered for {@code users.cache.not-found.expire-after-write}, so that
+ * scanners and stale links repeating the same unknown ids are answered with 404 without calling Keycloak.
+ * <p>
+ * With {@code users.replica.enabled}, {@link #getUserById} answers from {@link UserDirectoryReplica} without
+ * calling Keycloak while the replica is fresh; ids it does not hold go through the cache.
+ */
+@Slf4j
+@Primary
+@Service
+public class CachingUserService implements UserService {
+    private final UserServiceImpl delegate;
+    private final AsyncLoadingCache<UUID, UserResponse> users;
+    private final Cache<UUID, UserResponse> lastKnownGood;
+    private final Cache<UUID, Boolean> notFound;
+    private final UserDirectoryReplica replica;
+    private final int lookupMaxSize;
+
+    public CachingUserService(UserServiceImpl delegate,
+                              ObjectProvider<UserDirectoryReplica> replica,
+                              MeterRegistry meterRegistry,
+                              @Value("${users.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${users.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                              @Value("${users.cache.refresh-after-write:1m}") Duration refreshAfterWrite,
+                              @Value("${users.cache.last-known-good.enabled:true}") boolean lastKnownGoodEnabled,
+                              @Value("${users.cache.last-known-good.max-age:1h}") Duration lastKnownGoodMaxAge,
+                              @Value("${users.cache.not-found.maximum-size:10000}") long notFoundMaximumSize,
+                              @Value("${users.cache.not-found.expire-after-write:30s}") Duration notFoundExpireAfterWrite,
+                              @Value("${users.lookup.max-size:200}") int lookupMaxSize) {
+        this.delegate = delegate;
+        this.lookupMaxSize = lookupMaxSize;
+        this.replica = replica.getIfAvailable();
+        this.lastKnownGood = lastKnownGoodEnabled
+                ? Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(lastKnownGoodMaxAge).build()
+                : null;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats()
+                .buildAsync((id, executor) -> delegate.getUserByIdAsync(id).thenApply(user -> remember(id, user)));
+        this.notFound = Caffeine.newBuilder()
+                .maximumSize(notFoundMaximumSize)
+                .expireAfterWrite(notFoundExpireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+        CaffeineCacheMetrics.monitor(meterRegistry, notFound, "users.not-found");
+    }
+
+    @Override
+    public UUID createUser(UserRequest userRequest) {
+        UUID id = delegate.createUser(userRequest);
+        evict(id);
+        return id;
+    }
+
+    @Override
+    public List<UserCreationResult> createUsers(List<UserRequest> userRequests) {
+        List<UserCreationResult> results = delegate.createUsers(userRequests);
+        results.stream()
+                .map(UserCreationResult::getId)
+                .filter(Objects::nonNull)
+                .forEach(this::evict);
+        return results;
+    }
+
+    @Override
+    public CompletableFuture<UUID> createUserAsync(UserRequest userRequest) {
+        return delegate.createUserAsync(userRequest).thenApply(id -> {
+            evict(id);
+            return id;
+        });
+    }
+
+    @Override
+    public UserResponse getUserById(UUID id) {
+        return join(getUserByIdAsync(id));
+    }
+
+    @Override
+    public CompletableFuture<UserResponse> getUserByIdAsync(UUID id) {
+        UserResponse replicated = replica != null ? replica.getIfFresh(id) : null;
+        if (replicated != null) {
+            return CompletableFuture.completedFuture(replicated);
+        }
+        if (notFound.getIfPresent(id) != null) {
+            return CompletableFuture.failedFuture(userNotFound());
+        }
+        return users.get(id).exceptionally(ex -> loadFailed(id, ex));
+    }
+
+    @Override
+    public UserLookupResponse getUsersByIds(Collection<UUID> ids) {
+        Set<UUID> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > lookupMaxSize) {
+            throw new BackendResourcesException(
+                    "Lookup must not contain more than " + lookupMaxSize + " ids", HttpStatus.BAD_REQUEST);
+        }
+        List<UUID> missing = new ArrayList<>();
+        Map<UUID, CompletableFuture<UserResponse>> lookups = new LinkedHashMap<>();
+        Map<UUID, CompletableFuture<UserResponse>> misses = new LinkedHashMap<>();
+        for (UUID id : distinctIds) {
+            if (notFound.getIfPresent(id) != null) {
+                missing.add(id);
+                continue;
+            }
+            // Join a load already in flight for the id, e.g. from getUserByIdAsync, instead of loading it twice
+            CompletableFuture<UserResponse> loading = new CompletableFuture<>();
+            CompletableFuture<UserResponse> inFlight = users.asMap().putIfAbsent(id, loading);
+            if (inFlight == null) {
+                misses.put(id, loading);
+            }
+            lookups.put(id, inFlight != null ? inFlight : loading);
+        }
+        if (!misses.isEmpty()) {
+            loadAll(misses);
+        }
+        // Each id fails on its own: a 404 lands in notFound and 503/504 fall back to the last known user
+        Map<UUID, UserResponse> found = new LinkedHashMap<>();
+        lookups.forEach((id, lookup) -> {
+            try {
+                found.put(id, join(lookup.exceptionally(ex -> loadFailed(id, ex))));
+            } catch (BackendResourcesException ex) {
+                if (ex.getHttpStatus() != HttpStatus.NOT_FOUND) {
+                    throw ex;
+                }
+                missing.add(id);
+            }
+        });
+        return new UserLookupResponse(found, missing);
+    }
+
+    @Override
+    public void streamUsers(boolean includeRoles, boolean includeGroups, Consumer<UserSummaryResponse> consumer) {
+        delegate.streamUsers(includeRoles, includeGroups, consumer);
+    }
+
+    public void evict(UUID id) {
+        users.synchronous().invalidate(id);
+        notFound.invalidate(id);
+        if (lastKnownGood != null) {
+            lastKnownGood.invalidate(id);
+        }
+    }
+
+    private void loadAll(Map<UUID, CompletableFuture<UserResponse>> misses) {
+        try {
+            UserLookupResponse loaded = delegate.getUsersByIds(List.copyOf(misses.keySet()));
+            misses.forEach((id, future) -> {
+                UserResponse user = loaded.getUsers().get(id);
+                if (user != null) {
+                    future.complete(remember(id, user));
+                } else {
+                    future.completeExceptionally(userNotFound());
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Failed futures are dropped from the cache, so the next lookup loads the ids again
+            misses.values().forEach(future -> future.completeExceptionally(ex));
+        }
+    }
+
+    private UserResponse loadFailed(UUID id, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof BackendResourcesException backendEx && backendEx.getHttpStatus() == HttpStatus.NOT_FOUND) {
+            notFound.put(id, Boolean.TRUE);
+        }
+        UserResponse fallback = cause instanceof BackendResourcesException backendEx
+                && isKeycloakUnavailable(backendEx) && lastKnownGood != null
+                ? lastKnownGood.getIfPresent(id)
+                : null;
+        if (fallback == null) {
+            throw cause instanceof RuntimeException runtimeEx ? runtimeEx : new CompletionException(cause);
+        }
+        log.warn("Serving last known user {} because Keycloak is unavailable: {}", id, cause.getMessage());
+        return fallback;
+    }
+
+    private UserResponse remember(UUID id, UserResponse user) {
+        if (lastKnownGood != null) {
+            lastKnownGood.put(id, user);
+        }
+        return user;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static BackendResourcesException userNotFound() {
+        return new BackendResourcesException("User not found", HttpStatus.NOT_FOUND);
+    }
+
+    private static boolean isKeycloakUnavailable(BackendResourcesException ex) {
+        return ex.getHttpStatus() == HttpStatus.SERVICE_UNAVAILABLE || ex.getHttpStatus() == HttpStatus.GATEWAY_TIMEOUT;
+    }
+}
@@ -0,0 +1,102 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.security.ServiceAccountTokenManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.MappingsRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of the admin client resources {@link UserServiceImpl} needs to create and look up
+ * users. Every request carries the service-account token of {@link ServiceAccountTokenManager}; when Keycloak
+ * answers 401 a new token is fetched and the request is sent once more, as for the RESTEasy client.
+ * <p>
+ * Keycloak errors surface as {@link WebClientResponseException}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "users.api.mode", havingValue = "reactive")
+public class KeycloakAdminWebClient {
+    private static final ParameterizedTypeReference<List<GroupRepresentation>> GROUPS =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final WebClient keycloakWebClient;
+    private final ServiceAccountTokenManager tokenManager;
+
+    /**
+     * Creates the user and emits its id, taken from the {@code Location} of Keycloak's 201 response.
+     */
+    public Mono<String> createUser(UserRepresentation user) {
+        return withToken(token -> keycloakWebClient.post()
+                .uri("/users")
+                .headers(headers -> headers.setBearerAuth(token))
+                .bodyValue(user)
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> createdId(response.getHeaders().getLocation())));
+    }
+
+    public Mono<UserRepresentation> getUser(String id) {
+        return get("/users/{id}", id, UserRepresentation.class);
+    }
+
+    public Mono<MappingsRepresentation> getRoleMappings(String id) {
+        return get("/users/{id}/role-mappings", id, MappingsRepresentation.class);
+    }
+
+    public Mono<List<GroupRepresentation>> getGroups(String id) {
+        return withToken(token -> keycloakWebClient.get()
+                .uri("/users/{id}/groups", id)
+                .headers(headers -> headers.setBearerAuth(token))
+                .retrieve()
+                .bodyToMono(GROUPS));
+    }
+
+    private <T> Mono<T> get(String uri, String id, Class<T> type) {
+        return withToken(token -> keycloakWebClient.get()
+                .uri(uri, id)
+                .headers(headers -> headers.setBearerAuth(token))
+                .retrieve()
+                .bodyToMono(type));
+    }
+
+    private <T> Mono<T> withToken(Function<String, Mono<T>> call) {
+        return accessToken().flatMap(token -> call.apply(token)
+                .onErrorResume(WebClientResponseException.Unauthorized.class, ex -> {
+                    log.warn("Keycloak rejected the service-account token, fetching a new one");
+                    return Mono.fromCallable(() -> tokenManager.refreshAccessToken(token))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .flatMap(call);
+                }));
+    }
+
+    // Normally the token refreshed in the background is at hand; fetching one blocks, so not on an event loop
+    private Mono<String> accessToken() {
+        return tokenManager.getValidAccessToken()
+                .map(Mono::just)
+                .orElseGet(() -> Mono.fromCallable(tokenManager::getAccessToken)
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private static String createdId(URI location) {
+        if (location == null) {
+            throw new IllegalStateException("Keycloak did not return the location of the created user");
+        }
+        String path = location.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
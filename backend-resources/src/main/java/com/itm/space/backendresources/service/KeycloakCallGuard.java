@@ -0,0 +1,212 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.security.ServiceAccountTokenManager;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs Keycloak admin calls behind a per-operation bulkhead and a circuit breaker shared by all operations.
+ * A full bulkhead or an open circuit fails the call immediately with
+ * {@link io.github.resilience4j.bulkhead.BulkheadFullException} or
+ * {@link io.github.resilience4j.circuitbreaker.CallNotPermittedException}.
+ * <p>
+ * Bulkheads do not wait for a permit, since the reactive path must not block. An operation that
+ * {@code UserServiceImpl} fans out is therefore sized from the fan-out's parallelism instead: unless
+ * {@code keycloak.bulkhead.<operation>.max-concurrent-calls} is set, it admits
+ * {@code keycloak.bulkhead.concurrent-fan-outs} of its widest fan-out at once, and never fewer calls than
+ * {@code keycloak.bulkhead.max-concurrent-calls}.
+ * <p>
+ * Every call is timed as {@code keycloak.admin.calls}, tagged with the operation and an outcome of
+ * {@code success}, {@code client-error}, {@code server-error}, {@code rejected} or {@code error}.
+ */
+@Slf4j
+@Component
+public class KeycloakCallGuard {
+    public static final String CREATE = "create";
+    public static final String REPRESENTATION = "representation";
+    public static final String ROLE_MAPPINGS = "role-mappings";
+    public static final String GROUPS = "groups";
+    public static final String LIST = "list";
+    public static final String ADMIN_EVENTS = "admin-events";
+    public static final String COUNT = "count";
+
+    // Parallelism properties (with their defaults) of the fan-outs each operation runs in
+    private static final Map<String, Map<String, Integer>> FAN_OUTS = Map.of(
+            CREATE, Map.of("users.batch.parallelism", 8, "users.jobs.max-concurrency", 16),
+            REPRESENTATION, Map.of("users.lookup.parallelism", 16),
+            ROLE_MAPPINGS, Map.of("users.lookup.parallelism", 16, "users.list.enrich-parallelism", 16),
+            GROUPS, Map.of("users.lookup.parallelism", 16, "users.list.enrich-parallelism", 16));
+
+    private final CircuitBreaker circuitBreaker;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ServiceAccountTokenManager tokenManager;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public KeycloakCallGuard(CircuitBreakerRegistry circuitBreakerRegistry,
+                             BulkheadRegistry bulkheadRegistry,
+                             ServiceAccountTokenManager tokenManager,
+                             Environment environment,
+                             MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("keycloak");
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.tokenManager = tokenManager;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        circuitBreaker.getEventPublisher()
+                .onStateTransition(event -> log.warn("Keycloak circuit breaker: {}", event.getStateTransition()));
+    }
+
+    public <T> T call(String operation, Supplier<T> call) {
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(circuitBreaker,
+                () -> tokenManager.retryOnUnauthorized(call));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = Bulkhead.decorateSupplier(bulkhead(operation), guarded).get();
+            sample.stop(timer(operation, "success"));
+            return result;
+        } catch (RuntimeException ex) {
+            sample.stop(timer(operation, outcome(ex)));
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs {@code call} on {@code executor} once the bulkhead and the circuit breaker have admitted it, so a
+     * call they reject fails at once instead of first waiting in the executor's queue. A call the executor
+     * rejects fails with {@link RejectedExecutionException}. The bulkhead permit is held until the call has
+     * returned on the executor; the circuit breaker records what the caller sees, including a
+     * {@link java.util.concurrent.TimeoutException} after {@code timeout}.
+     */
+    public <T> CompletableFuture<T> callAsync(String operation, Supplier<T> call, Executor executor, Duration timeout) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Bulkhead bulkhead = bulkhead(operation);
+        try {
+            bulkhead.acquirePermission();
+        } catch (BulkheadFullException ex) {
+            sample.stop(timer(operation, "rejected"));
+            return CompletableFuture.failedFuture(ex);
+        }
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (CallNotPermittedException ex) {
+            bulkhead.onComplete();
+            sample.stop(timer(operation, "rejected"));
+            return CompletableFuture.failedFuture(ex);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(tokenManager.retryOnUnauthorized(call));
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                } finally {
+                    bulkhead.onComplete();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            bulkhead.onComplete();
+            circuitBreaker.releasePermission();
+            sample.stop(timer(operation, "rejected"));
+            return CompletableFuture.failedFuture(ex);
+        }
+        return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, ex) -> {
+            long duration = System.nanoTime() - start;
+            if (ex == null) {
+                circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+                sample.stop(timer(operation, "success"));
+            } else {
+                circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, ex);
+                sample.stop(timer(operation, outcome(ex)));
+            }
+        });
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #call(String, Supplier)}: the bulkhead permit is held from
+     * subscription until {@code call} terminates or is cancelled.
+     */
+    public <T> Mono<T> call(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call.transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                    .transformDeferred(BulkheadOperator.of(bulkhead(operation)))
+                    .doOnSuccess(result -> sample.stop(timer(operation, "success")))
+                    .doOnError(ex -> sample.stop(timer(operation, outcome(ex))));
+        });
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + ':' + outcome, key -> Timer.builder("keycloak.admin.calls")
+                .description("Keycloak admin API calls")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private static String outcome(Throwable ex) {
+        if (ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException) {
+            return "rejected";
+        }
+        if (ex instanceof WebApplicationException webApplicationException) {
+            return webApplicationException.getResponse().getStatus() >= 500 ? "server-error" : "client-error";
+        }
+        if (ex instanceof WebClientResponseException webClientResponseException) {
+            return webClientResponseException.getStatusCode().is5xxServerError() ? "server-error" : "client-error";
+        }
+        return "error";
+    }
+
+    private Bulkhead bulkhead(String operation) {
+        return bulkheads.computeIfAbsent(operation, name -> {
+            BulkheadConfig defaults = bulkheadRegistry.getDefaultConfig();
+            int maxConcurrentCalls = environment.getProperty("keycloak.bulkhead." + name + ".max-concurrent-calls",
+                    Integer.class, Math.max(defaults.getMaxConcurrentCalls(), fanOutCalls(name)));
+            Bulkhead bulkhead = bulkheadRegistry.bulkhead("keycloak-" + name, BulkheadConfig.from(defaults)
+                    .maxConcurrentCalls(maxConcurrentCalls)
+                    .build());
+            Counter rejected = Counter.builder("keycloak.bulkhead.rejected")
+                    .tag("operation", name)
+                    .register(meterRegistry);
+            bulkhead.getEventPublisher().onCallRejected(event -> rejected.increment());
+            return bulkhead;
+        });
+    }
+
+    private int fanOutCalls(String operation) {
+        int widest = FAN_OUTS.getOrDefault(operation, Map.of()).entrySet().stream()
+                .mapToInt(fanOut -> environment.getProperty(fanOut.getKey(), Integer.class, fanOut.getValue()))
+                .max()
+                .orElse(0);
+        return widest * environment.getProperty("keycloak.bulkhead.concurrent-fan-outs", Integer.class, 2);
+    }
+}
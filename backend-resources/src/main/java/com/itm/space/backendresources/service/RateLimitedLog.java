@@ -0,0 +1,54 @@
+package com.itm.space.backendresources.service;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes at most one message per interval and reports how many it dropped in between, for outcomes that
+ * arrive in floods (scanners, stale links) and would otherwise drown the log.
+ */
+final class RateLimitedLog {
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextLogAt;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    RateLimitedLog(Logger logger, Duration interval) {
+        this.logger = logger;
+        this.intervalNanos = interval.toNanos();
+        this.nextLogAt = new AtomicLong(System.nanoTime());
+    }
+
+    void info(String format, Object... arguments) {
+        if (logger.isInfoEnabled()) {
+            log((message, values) -> logger.info(message, values), format, arguments);
+        }
+    }
+
+    void warn(String format, Object... arguments) {
+        if (logger.isWarnEnabled()) {
+            log((message, values) -> logger.warn(message, values), format, arguments);
+        }
+    }
+
+    private void log(BiConsumer<String, Object[]> level, String format, Object[] arguments) {
+        long now = System.nanoTime();
+        long next = nextLogAt.get();
+        if (now - next < 0 || !nextLogAt.compareAndSet(next, now + intervalNanos)) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        long dropped = suppressed.getAndSet(0);
+        if (dropped == 0) {
+            level.accept(format, arguments);
+            return;
+        }
+        Object[] withDropped = Arrays.copyOf(arguments, arguments.length + 1);
+        withDropped[arguments.length] = dropped;
+        level.accept(format + " ({} similar messages suppressed)", withDropped);
+    }
+}
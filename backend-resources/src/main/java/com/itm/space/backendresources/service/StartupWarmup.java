@@ -0,0 +1,196 @@
+package com.itm.space.backendresources.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UserSummaryResponse;
+import com.itm.space.backendresources.mapper.UserMapper;
+import com.itm.space.backendresources.security.ServiceAccountTokenManager;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pays the first-request costs before the instance reports ready: discovering the issuer and loading its
+ * JWKS, fetching the service-account token, building the admin client's proxies and opening pooled
+ * connections to Keycloak, and running the mapper and JSON serialization often enough to get them compiled.
+ * <p>
+ * Application runners finish before Spring Boot switches the readiness state to {@code ACCEPTING_TRAFFIC},
+ * so {@code /actuator/health/readiness} reports {@code OUT_OF_SERVICE} until the warm-up is done. A step that
+ * fails or takes longer than {@code startup.warmup.step-timeout} is logged and skipped: the instance still
+ * becomes ready and pays that cost on the first request.
+ * <p>
+ * The training run of the fast-startup build ({@code startup.training-run}) only runs the serialization step:
+ * there is no Keycloak to reach at build time, and the Keycloak steps would each wait out their timeout.
+ * <p>
+ * Each step is timed as {@code startup.warmup} with its {@code step} and {@code outcome}; the whole warm-up
+ * is the {@code all} step.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "startup.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class StartupWarmup implements ApplicationRunner {
+    private final JWKSource<SecurityContext> jwkSource;
+    private final ServiceAccountTokenManager tokenManager;
+    private final Keycloak keycloakClient;
+    private final KeycloakCallGuard keycloakCallGuard;
+    private final ThreadPoolTaskExecutor keycloakExecutor;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${keycloak.realm}")
+    private String realm;
+    @Value("${startup.warmup.connections:8}")
+    private int connections;
+    @Value("${startup.warmup.iterations:10000}")
+    private int iterations;
+    @Value("${startup.warmup.step-timeout:10s}")
+    private Duration stepTimeout;
+    @Value("${startup.training-run:false}")
+    private boolean trainingRun;
+
+    public StartupWarmup(JWKSource<SecurityContext> jwkSource,
+                         ServiceAccountTokenManager tokenManager,
+                         Keycloak keycloakClient,
+                         KeycloakCallGuard keycloakCallGuard,
+                         ThreadPoolTaskExecutor keycloakExecutor,
+                         UserMapper userMapper,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.jwkSource = jwkSource;
+        this.tokenManager = tokenManager;
+        this.keycloakClient = keycloakClient;
+        this.keycloakCallGuard = keycloakCallGuard;
+        this.keycloakExecutor = keycloakExecutor;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        Map<String, Long> stepMillis = new LinkedHashMap<>();
+        // Steps run on their own threads so that one that hangs can be abandoned after the step timeout
+        ExecutorService stepExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "startup-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int steps = trainingRun ? 1 : 4;
+        try {
+            if (!trainingRun) {
+                step("jwks", stepMillis, stepExecutor,
+                        () -> jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null));
+                step("token", stepMillis, stepExecutor, tokenManager::getAccessToken);
+                step("keycloak-connections", stepMillis, stepExecutor, this::openConnections);
+            }
+            step("serialization", stepMillis, stepExecutor, this::exerciseSerialization);
+        } finally {
+            stepExecutor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        timer("all", stepMillis.size() == steps ? "success" : "failure").record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warm-up finished in {} ms: {}", TimeUnit.NANOSECONDS.toMillis(elapsed), stepMillis);
+    }
+
+    private void step(String name, Map<String, Long> stepMillis, Executor executor, WarmupStep step) {
+        long start = System.nanoTime();
+        try {
+            CompletableFuture.runAsync(() -> {
+                        try {
+                            step.run();
+                        } catch (Exception ex) {
+                            throw new CompletionException(ex);
+                        }
+                    }, executor)
+                    .orTimeout(stepTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .join();
+            long elapsed = System.nanoTime() - start;
+            timer(name, "success").record(elapsed, TimeUnit.NANOSECONDS);
+            stepMillis.put(name, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } catch (CompletionException ex) {
+            timer(name, "failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            log.warn("Warm-up step \"{}\" failed: {}", name,
+                    cause instanceof TimeoutException ? "timed out after " + stepTimeout : cause.getMessage());
+        }
+    }
+
+    // Concurrent calls make the pool open several connections, which it keeps alive for the first requests.
+    // They go through the guard like any other Keycloak call: bounded, retried on 401 and seen by the circuit
+    private void openConnections() {
+        UsersResource usersResource = keycloakClient.realm(realm).users();
+        List<CompletableFuture<Integer>> calls = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            calls.add(keycloakCallGuard.callAsync(KeycloakCallGuard.COUNT, usersResource::count, keycloakExecutor,
+                    stepTimeout));
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void exerciseSerialization() throws Exception {
+        UserRepresentation user = new UserRepresentation();
+        user.setId(UUID.randomUUID().toString());
+        user.setUsername("warmup");
+        user.setFirstName("Warm");
+        user.setLastName("Up");
+        user.setEmail("warmup@example.com");
+        RoleRepresentation role = new RoleRepresentation("default-roles", null, false);
+        GroupRepresentation group = new GroupRepresentation();
+        group.setName("warmup");
+        byte[] request = objectMapper.writeValueAsBytes(
+                new UserRequest("warmup", "warmup@example.com", "warmup", "Warm", "Up"));
+        // Stops when the step times out and its thread is interrupted
+        for (int i = 0; i < iterations && !Thread.currentThread().isInterrupted(); i++) {
+            UserResponse response = userMapper.userRepresentationToUserResponse(user, List.of(role), List.of(group));
+            UserSummaryResponse summary = userMapper.userRepresentationToUserSummary(user, List.of(role), List.of(group));
+            objectMapper.writeValueAsBytes(response);
+            objectMapper.writeValueAsBytes(summary);
+            objectMapper.readValue(request, UserRequest.class);
+        }
+    }
+
+    private Timer timer(String step, String outcome) {
+        return Timer.builder("startup.warmup")
+                .description("Warm-up of first-request costs before the instance reports ready")
+                .tag("step", step)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface WarmupStep {
+        void run() throws Exception;
+    }
+}
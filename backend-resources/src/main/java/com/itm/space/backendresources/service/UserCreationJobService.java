@@ -0,0 +1,221 @@
+package com.itm.space.backendresources.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationJobResponse;
+import com.itm.space.backendresources.api.response.UserCreationJobResponse.State;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates users in the background for {@code POST /api/users} with {@code Prefer: respond-async}. Accepted
+ * requests wait in a queue of {@code users.jobs.queue-capacity}; when it is full, submissions are refused with
+ * 503. A dispatcher hands queued jobs to up to {@code users.jobs.max-concurrency} workers, as many at once as
+ * an {@link AdaptiveConcurrencyLimit} allows: it grows while Keycloak keeps up and halves when Keycloak
+ * answers 429, 503 or 504. Each job goes through {@link UserService#createUser}, so errors map as they do for
+ * a synchronous creation.
+ * <p>
+ * An {@code Idempotency-Key} ties a request to its job for the moderator who sent it: a retry with the same
+ * key and body gets the original job, the same key with another body is refused with 422. A key whose job
+ * failed with a server error is released so that the request can be retried. Jobs and keys are kept for
+ * {@code users.jobs.retention}, at most {@code users.jobs.max-retained} of each. Queued jobs are lost when the
+ * instance stops.
+ * <p>
+ * Published as the {@code users.jobs.queue.size} and {@code users.jobs.concurrency.limit} gauges.
+ */
+@Slf4j
+@Service
+public class UserCreationJobService implements AutoCloseable {
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Job> queue;
+    private final Cache<UUID, Job> jobs;
+    private final Cache<String, IdempotencyRecord> idempotencyKeys;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final ExecutorService dispatcher;
+    private final ExecutorService workers;
+
+    public UserCreationJobService(UserService userService,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${users.jobs.queue-capacity:1000}") int queueCapacity,
+                                  @Value("${users.jobs.initial-concurrency:4}") int initialConcurrency,
+                                  @Value("${users.jobs.max-concurrency:16}") int maxConcurrency,
+                                  @Value("${users.jobs.retention:1h}") Duration retention,
+                                  @Value("${users.jobs.max-retained:100000}") long maxRetained) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.jobs = Caffeine.newBuilder().maximumSize(maxRetained).expireAfterWrite(retention).build();
+        this.idempotencyKeys = Caffeine.newBuilder().maximumSize(maxRetained).expireAfterWrite(retention).build();
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialConcurrency, 1, maxConcurrency);
+        Gauge.builder("users.jobs.queue.size", queue, BlockingQueue::size)
+                .description("User-creation jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("users.jobs.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("User-creation jobs currently allowed to call Keycloak at once")
+                .register(meterRegistry);
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "user-jobs-" + workerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-jobs-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.execute(this::dispatch);
+    }
+
+    /**
+     * Queues the creation of a user, or returns the job already created for {@code idempotencyKey}.
+     */
+    public UserCreationJobResponse submit(UserRequest userRequest, String principal, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return enqueue(new Job(userRequest, null)).toResponse();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BackendResourcesException("Idempotency-Key must have 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH
+                    + " characters", HttpStatus.BAD_REQUEST);
+        }
+        String key = principal + '\n' + idempotencyKey;
+        IdempotencyRecord record = new IdempotencyRecord(fingerprint(userRequest), new Job(userRequest, key));
+        IdempotencyRecord existing = idempotencyKeys.asMap().putIfAbsent(key, record);
+        if (existing == null) {
+            try {
+                return enqueue(record.job).toResponse();
+            } catch (BackendResourcesException ex) {
+                idempotencyKeys.asMap().remove(key, record);
+                throw ex;
+            }
+        }
+        if (!Arrays.equals(existing.fingerprint, record.fingerprint)) {
+            throw new BackendResourcesException("Idempotency-Key was already used for another request",
+                    HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+        return existing.job.toResponse();
+    }
+
+    public Optional<UserCreationJobResponse> getJob(UUID id) {
+        return Optional.ofNullable(jobs.getIfPresent(id)).map(Job::toResponse);
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+        workers.shutdown();
+    }
+
+    private Job enqueue(Job job) {
+        jobs.put(job.id, job);
+        if (!queue.offer(job)) {
+            jobs.invalidate(job.id);
+            throw new BackendResourcesException("Too many users waiting to be created", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return job;
+    }
+
+    private void dispatch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Job job = queue.take();
+                concurrencyLimit.acquire();
+                workers.execute(() -> run(job));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(Job job) {
+        job.state = State.RUNNING;
+        // Replaced below unless an Error escapes; the job then still fails and frees its slot
+        UserCreationResult result = UserCreationResult.failed(HttpStatus.INTERNAL_SERVER_ERROR, "User creation failed");
+        try {
+            result = UserCreationResult.created(userService.createUser(job.request));
+        } catch (BackendResourcesException ex) {
+            HttpStatus status = ex.getHttpStatus() != null ? ex.getHttpStatus() : HttpStatus.INTERNAL_SERVER_ERROR;
+            result = UserCreationResult.failed(status, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.error("Exception on \"createUserJob\": ", ex);
+            result = UserCreationResult.failed(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+        } finally {
+            concurrencyLimit.release(isOverloaded(result));
+            job.complete(result);
+            if (job.idempotencyKey != null && HttpStatus.valueOf(result.getStatus()).is5xxServerError()) {
+                idempotencyKeys.asMap().computeIfPresent(job.idempotencyKey,
+                        (key, record) -> record.job == job ? null : record);
+            }
+        }
+    }
+
+    private byte[] fingerprint(UserRequest userRequest) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(userRequest));
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static boolean isOverloaded(UserCreationResult result) {
+        int status = result.getStatus();
+        return status == HttpStatus.TOO_MANY_REQUESTS.value()
+                || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status == HttpStatus.GATEWAY_TIMEOUT.value();
+    }
+
+    private record IdempotencyRecord(byte[] fingerprint, Job job) {
+    }
+
+    private static final class Job {
+        private final UUID id = UUID.randomUUID();
+        private final String idempotencyKey;
+        // Dropped once the job has run, so that the password is not kept for the job's retention
+        private volatile UserRequest request;
+        private volatile State state = State.QUEUED;
+        private volatile UserCreationResult result;
+
+        private Job(UserRequest request, String idempotencyKey) {
+            this.request = request;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        private void complete(UserCreationResult result) {
+            this.result = result;
+            this.request = null;
+            this.state = result.getId() != null ? State.SUCCEEDED : State.FAILED;
+        }
+
+        // complete() writes the state last: once it is final, the result is visible too
+        private UserCreationJobResponse toResponse() {
+            State currentState = state;
+            boolean done = currentState == State.SUCCEEDED || currentState == State.FAILED;
+            return new UserCreationJobResponse(id, currentState, done ? result : null);
+        }
+    }
+}
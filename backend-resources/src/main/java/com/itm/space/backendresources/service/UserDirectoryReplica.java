@@ -0,0 +1,293 @@
+package com.itm.space.backendresources.service;
+
+import com.itm.space.backendresources.api.response.UserLookupResponse;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UserSummaryResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory copy of every user of the realm with their realm roles and groups, for read-heavy deployments
+ * ({@code users.replica.enabled}). It is loaded in the background once the context has started, by paging
+ * through the users, then kept up to date by polling Keycloak admin events every {@code users.replica.poll-interval}, and
+ * reloaded in full every {@code users.replica.reconcile-interval} to repair anything the events missed.
+ * Admin events must be enabled for the realm, and the service account needs the {@code view-events} role.
+ * <p>
+ * Users are kept as {@link UserResponse}s keyed by id, so a lookup returns the stored instance. Role and group
+ * names and lists are interned: users with the same roles and groups share the same lists. Lookups are only
+ * answered while the last successful sync is at most {@code users.replica.max-staleness} old.
+ * <p>
+ * After consecutive failed syncs the poll interval doubles, up to {@code users.replica.max-backoff}, and the
+ * failures are logged at most once a minute.
+ * <p>
+ * Published as the {@code users.replica.size} and {@code users.replica.staleness} gauges.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "users.replica.enabled", havingValue = "true")
+public class UserDirectoryReplica implements SmartLifecycle {
+    private static final int EVENT_PAGE_SIZE = 100;
+    private static final Pattern USER_PATH = Pattern.compile("users/([0-9a-fA-F-]{36})(/.*)?");
+    // Renaming or deleting these changes the names held by many users at once
+    private static final Set<String> SHARED_RESOURCE_TYPES = Set.of("GROUP", "REALM_ROLE");
+    private static final Duration FAILURE_LOG_INTERVAL = Duration.ofMinutes(1);
+
+    private final UserServiceImpl delegate;
+    private final RealmResource realmResource;
+    private final KeycloakCallGuard keycloakCallGuard;
+    private final Duration pollInterval;
+    private final Duration maxBackoff;
+    private final Duration reconcileInterval;
+    private final Duration maxStaleness;
+    private final Duration eventOverlap;
+    private final int lookupMaxSize;
+    private final Map<UUID, UserResponse> users = new ConcurrentHashMap<>();
+    private final RateLimitedLog failureLog = new RateLimitedLog(log, FAILURE_LOG_INTERVAL);
+
+    private volatile ScheduledExecutorService scheduler;
+    private volatile boolean loaded;
+    private volatile long syncedAt;
+    // Only touched by the scheduler thread
+    private Interner interner = new Interner();
+    private long reconciledAt;
+    private long eventsSince;
+    private int consecutiveFailures;
+
+    public UserDirectoryReplica(UserServiceImpl delegate,
+                                Keycloak keycloakClient,
+                                KeycloakCallGuard keycloakCallGuard,
+                                MeterRegistry meterRegistry,
+                                @Value("${keycloak.realm}") String realm,
+                                @Value("${users.replica.poll-interval:10s}") Duration pollInterval,
+                                @Value("${users.replica.max-backoff:5m}") Duration maxBackoff,
+                                @Value("${users.replica.reconcile-interval:1h}") Duration reconcileInterval,
+                                @Value("${users.replica.max-staleness:1m}") Duration maxStaleness,
+                                @Value("${users.replica.event-overlap:30s}") Duration eventOverlap,
+                                @Value("${users.lookup.max-size:200}") int lookupMaxSize) {
+        this.delegate = delegate;
+        this.realmResource = keycloakClient.realm(realm);
+        this.keycloakCallGuard = keycloakCallGuard;
+        this.pollInterval = pollInterval;
+        this.maxBackoff = maxBackoff;
+        this.reconcileInterval = reconcileInterval;
+        this.maxStaleness = maxStaleness;
+        this.eventOverlap = eventOverlap;
+        this.lookupMaxSize = lookupMaxSize;
+        Gauge.builder("users.replica.size", users, Map::size)
+                .description("Users held by the in-memory replica")
+                .register(meterRegistry);
+        TimeGauge.builder("users.replica.staleness", this, TimeUnit.NANOSECONDS, UserDirectoryReplica::stalenessNanos)
+                .description("Time since the replica was last synced with Keycloak")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService started = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = started;
+        started.execute(this::syncAndReschedule);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService stopped = scheduler;
+        scheduler = null;
+        if (stopped != null) {
+            stopped.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * The replicated user, or {@code null} if the id is not replicated or the replica is too stale to answer.
+     */
+    public UserResponse getIfFresh(UUID id) {
+        return isFresh() ? users.get(id) : null;
+    }
+
+    public boolean isFresh() {
+        return loaded && System.nanoTime() - syncedAt <= maxStaleness.toNanos();
+    }
+
+    private void syncAndReschedule() {
+        sync();
+        ScheduledExecutorService current = scheduler;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.schedule(this::syncAndReschedule, nextSyncDelay().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // Stopped while syncing
+        }
+    }
+
+    private void sync() {
+        try {
+            if (!loaded || System.nanoTime() - reconciledAt >= reconcileInterval.toNanos()) {
+                reconcile();
+            } else {
+                applyEvents();
+            }
+            consecutiveFailures = 0;
+        } catch (RuntimeException ex) {
+            consecutiveFailures++;
+            failureLog.warn("Unable to sync the user replica ({} consecutive failures): {}",
+                    consecutiveFailures, ex.getMessage());
+        }
+    }
+
+    private Duration nextSyncDelay() {
+        if (consecutiveFailures == 0) {
+            return pollInterval;
+        }
+        Duration backoff = pollInterval.multipliedBy(1L << Math.min(consecutiveFailures, 20));
+        return backoff.compareTo(maxBackoff) < 0 ? backoff : maxBackoff;
+    }
+
+    /**
+     * Reloads every user. Events from shortly before the reload started are applied again afterwards, so
+     * changes made while the pages were being read are not lost.
+     */
+    private void reconcile() {
+        long startedAt = System.nanoTime();
+        long since = System.currentTimeMillis() - eventOverlap.toMillis();
+        // A new interner, so names that are no longer used are not kept
+        Interner fresh = new Interner();
+        Map<UUID, UserResponse> reloaded = new HashMap<>();
+        delegate.streamUsers(true, true, user -> reloaded.put(user.getId(), fresh.intern(user)));
+        users.keySet().retainAll(reloaded.keySet());
+        users.putAll(reloaded);
+        interner = fresh;
+        eventsSince = since;
+        reconciledAt = startedAt;
+        syncedAt = startedAt;
+        loaded = true;
+        log.info("Loaded {} users into the replica in {} ms", reloaded.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    private void applyEvents() {
+        long startedAt = System.nanoTime();
+        long since = System.currentTimeMillis() - eventOverlap.toMillis();
+        Set<UUID> changed = new LinkedHashSet<>();
+        if (collectChangedUsers(changed)) {
+            reconcile();
+            return;
+        }
+        refresh(changed);
+        eventsSince = Math.max(eventsSince, since);
+        syncedAt = startedAt;
+    }
+
+    /**
+     * Collects the users touched by admin events since {@code eventsSince}; returns {@code true} instead when
+     * an event affects users in bulk and only a full reload will do.
+     */
+    private boolean collectChangedUsers(Set<UUID> changed) {
+        // Keycloak filters admin events by day only and returns the newest first
+        String dateFrom = Instant.ofEpochMilli(eventsSince).atOffset(ZoneOffset.UTC).toLocalDate().minusDays(1)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE);
+        for (int first = 0; ; first += EVENT_PAGE_SIZE) {
+            List<AdminEventRepresentation> events = adminEvents(dateFrom, first);
+            for (AdminEventRepresentation event : events) {
+                if (event.getTime() < eventsSince) {
+                    return false;
+                }
+                Matcher userPath = USER_PATH.matcher(String.valueOf(event.getResourcePath()));
+                if (userPath.matches()) {
+                    changed.add(UUID.fromString(userPath.group(1)));
+                } else if (SHARED_RESOURCE_TYPES.contains(event.getResourceType())
+                        && !"CREATE".equals(event.getOperationType())) {
+                    return true;
+                }
+            }
+            if (events.size() < EVENT_PAGE_SIZE) {
+                return false;
+            }
+        }
+    }
+
+    private List<AdminEventRepresentation> adminEvents(String dateFrom, int first) {
+        return keycloakCallGuard.call(KeycloakCallGuard.ADMIN_EVENTS, () -> realmResource.getAdminEvents(
+                null, null, null, null, null, null, dateFrom, null, first, EVENT_PAGE_SIZE));
+    }
+
+    private void refresh(Set<UUID> ids) {
+        List<UUID> pending = new ArrayList<>(ids);
+        for (int from = 0; from < pending.size(); from += lookupMaxSize) {
+            UserLookupResponse lookup = delegate.getUsersByIds(
+                    pending.subList(from, Math.min(from + lookupMaxSize, pending.size())));
+            lookup.getUsers().forEach((id, user) -> users.put(id, interner.intern(user)));
+            lookup.getNotFound().forEach(users::remove);
+        }
+        if (!pending.isEmpty()) {
+            log.debug("Refreshed {} users in the replica", pending.size());
+        }
+    }
+
+    private double stalenessNanos() {
+        return loaded ? System.nanoTime() - syncedAt : Double.NaN;
+    }
+
+    private static final class Interner {
+        private final Map<String, String> names = new HashMap<>();
+        private final Map<List<String>, List<String>> lists = new HashMap<>();
+
+        UserResponse intern(UserSummaryResponse user) {
+            return new UserResponse(user.getFirstName(), user.getLastName(), user.getEmail(),
+                    intern(user.getRoles()), intern(user.getGroups()));
+        }
+
+        UserResponse intern(UserResponse user) {
+            return new UserResponse(user.getFirstName(), user.getLastName(), user.getEmail(),
+                    intern(user.getRoles()), intern(user.getGroups()));
+        }
+
+        private List<String> intern(List<String> values) {
+            if (values == null) {
+                return null;
+            }
+            List<String> interned = values.stream()
+                    .map(value -> names.computeIfAbsent(value, name -> name))
+                    .toList();
+            return lists.computeIfAbsent(interned, list -> list);
+        }
+    }
+}
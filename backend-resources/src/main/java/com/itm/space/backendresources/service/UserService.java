@@ -1,14 +1,52 @@
 package com.itm.space.backendresources.service;
 
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.api.response.UserLookupResponse;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UserSummaryResponse;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface UserService {
 
-    void createUser(UserRequest userRequest);
+    UUID createUser(UserRequest userRequest);
+
+    /**
+     * Same as {@link #createUser} without blocking the caller; failures complete the future with a
+     * {@link com.itm.space.backendresources.exception.BackendResourcesException}.
+     */
+    CompletableFuture<UUID> createUserAsync(UserRequest userRequest);
+
+    /**
+     * Creates every user independently; a failed item is reported in its result and does not abort the batch.
+     * Results are returned in request order.
+     */
+    List<UserCreationResult> createUsers(List<UserRequest> userRequests);
 
     UserResponse getUserById(UUID id);
 
+    /**
+     * Same as {@link #getUserById} without blocking the caller; failures complete the future with a
+     * {@link com.itm.space.backendresources.exception.BackendResourcesException}.
+     */
+    CompletableFuture<UserResponse> getUserByIdAsync(UUID id);
+
+    /**
+     * Looks up several users at once. Duplicate ids are fetched once; ids unknown to Keycloak are reported
+     * in {@link UserLookupResponse#getNotFound()} instead of failing the whole lookup.
+     */
+    UserLookupResponse getUsersByIds(Collection<UUID> ids);
+
+    /**
+     * Walks every user of the realm page by page and hands them to {@code consumer} in Keycloak order.
+     * Only the current and the prefetched next page are held in memory. Realm roles and groups are fetched
+     * only when requested.
+     */
+    void streamUsers(boolean includeRoles, boolean includeGroups, Consumer<UserSummaryResponse> consumer);
+
 }
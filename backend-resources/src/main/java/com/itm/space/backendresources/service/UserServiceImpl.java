@@ -1,25 +1,55 @@
 package com.itm.space.backendresources.service;
 
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.api.response.UserLookupResponse;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UserSummaryResponse;
 import com.itm.space.backendresources.exception.BackendResourcesException;
 import com.itm.space.backendresources.mapper.UserMapper;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.keycloak.admin.client.CreatedResponseUtil;
 import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -27,45 +57,345 @@ import java.util.UUID;
 public class UserServiceImpl implements UserService {
     private final Keycloak keycloakClient;
     private final UserMapper userMapper;
+    private final ThreadPoolTaskExecutor keycloakExecutor;
+    private final Validator validator;
+    private final KeycloakCallGuard keycloakCallGuard;
+    private final ObjectProvider<KeycloakAdminWebClient> keycloakAdminWebClient;
 
     @Value("${keycloak.realm}")
     private String realm;
+    @Value("${keycloak.call-timeout:5s}")
+    private Duration callTimeout;
+    @Value("${users.batch.parallelism:8}")
+    private int batchParallelism;
+    @Value("${users.batch.max-size:1000}")
+    private int batchMaxSize;
+    @Value("${users.lookup.parallelism:16}")
+    private int lookupParallelism;
+    @Value("${users.lookup.max-size:200}")
+    private int lookupMaxSize;
+    @Value("${users.list.page-size:100}")
+    private int listPageSize;
+    @Value("${users.list.enrich-parallelism:16}")
+    private int listEnrichParallelism;
+    @Value("${users.client-error-log-interval:10s}")
+    private Duration clientErrorLogInterval;
 
-    public void createUser(UserRequest userRequest) {
-        System.out.println("1");
+    // Client proxies are thread-safe but costly to build: each one copies RESTEasy's provider factory
+    private UsersResource usersResource;
+    // Present in users.api.mode=reactive: single-user calls then run without holding a thread while waiting
+    private KeycloakAdminWebClient webClient;
+    // Unknown ids and duplicate users are expected and can arrive in floods; they are not logged one by one
+    private RateLimitedLog clientErrorLog;
+
+    @PostConstruct
+    void init() {
+        usersResource = keycloakClient.realm(realm).users();
+        webClient = keycloakAdminWebClient.getIfAvailable();
+        clientErrorLog = new RateLimitedLog(log, clientErrorLogInterval);
+    }
+
+    @Override
+    public UUID createUser(UserRequest userRequest) {
         CredentialRepresentation password = preparePasswordRepresentation(userRequest.getPassword());
-        System.out.println("2");
         UserRepresentation user = prepareUserRepresentation(userRequest, password);
-        System.out.println("3");
         try {
-            Response response = keycloakClient.realm(realm).users().create(user);
-            System.out.println("4");
-            String userId = CreatedResponseUtil.getCreatedId(response);
-            System.out.println("5");
+            String userId = keycloakCallGuard.call(KeycloakCallGuard.CREATE, () -> {
+                // Closing the response hands the pooled connection back
+                try (Response response = usersResource.create(user)) {
+                    return CreatedResponseUtil.getCreatedId(response);
+                }
+            });
             log.info("Created UserId: {}", userId);
-            System.out.println("6");
+            return UUID.fromString(userId);
         } catch (WebApplicationException ex) {
-            log.error("Exception on \"createUser\": ", ex);
-            System.out.println("7");
-            throw new BackendResourcesException(ex.getMessage(), HttpStatus.resolve(ex.getResponse().getStatus()));
+            throw logged("createUser", ex,
+                    new BackendResourcesException(ex.getMessage(), HttpStatus.resolve(ex.getResponse().getStatus())));
+        } catch (CallNotPermittedException | BulkheadFullException ex) {
+            throw toBackendResourcesException(ex);
         }
     }
 
     @Override
-    public UserResponse getUserById(UUID id) {
-        UserRepresentation userRepresentation;
-        List<RoleRepresentation> userRoles;
-        List<GroupRepresentation> userGroups;
+    public CompletableFuture<UUID> createUserAsync(UserRequest userRequest) {
+        if (webClient == null) {
+            try {
+                return CompletableFuture.supplyAsync(() -> createUser(userRequest), keycloakExecutor);
+            } catch (RejectedExecutionException ex) {
+                return CompletableFuture.failedFuture(failure("createUser", ex));
+            }
+        }
+        CredentialRepresentation password = preparePasswordRepresentation(userRequest.getPassword());
+        UserRepresentation user = prepareUserRepresentation(userRequest, password);
+        return guarded(KeycloakCallGuard.CREATE, webClient.createUser(user))
+                .map(userId -> {
+                    log.info("Created UserId: {}", userId);
+                    return UUID.fromString(userId);
+                })
+                .onErrorMap(ex -> {
+                    if (ex instanceof WebClientResponseException webClientEx) {
+                        return logged("createUser", ex, new BackendResourcesException(webClientEx.getMessage(),
+                                HttpStatus.resolve(webClientEx.getStatusCode().value())));
+                    }
+                    return failure("createUser", ex);
+                })
+                .toFuture();
+    }
+
+    @Override
+    public List<UserCreationResult> createUsers(List<UserRequest> userRequests) {
+        if (userRequests.size() > batchMaxSize) {
+            throw new BackendResourcesException(
+                    "Batch must not contain more than " + batchMaxSize + " users", HttpStatus.BAD_REQUEST);
+        }
+        // The submitting thread waits for a free permit, so at most batchParallelism creations hit Keycloak at once
+        Semaphore permits = new Semaphore(batchParallelism);
+        List<CompletableFuture<UserCreationResult>> results = new ArrayList<>(userRequests.size());
+        for (UserRequest userRequest : userRequests) {
+            String violations = validate(userRequest);
+            if (violations != null) {
+                results.add(CompletableFuture.completedFuture(
+                        UserCreationResult.failed(HttpStatus.BAD_REQUEST, violations)));
+                continue;
+            }
+            permits.acquireUninterruptibly();
+            try {
+                results.add(CompletableFuture.supplyAsync(() -> createUserForBatch(userRequest), keycloakExecutor)
+                        .whenComplete((result, ex) -> permits.release()));
+            } catch (RejectedExecutionException ex) {
+                permits.release();
+                BackendResourcesException mapped = toBackendResourcesException(ex);
+                results.add(CompletableFuture.completedFuture(
+                        UserCreationResult.failed(mapped.getHttpStatus(), mapped.getMessage())));
+            }
+        }
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    private String validate(UserRequest userRequest) {
+        if (userRequest == null) {
+            return "must not be null";
+        }
+        Set<ConstraintViolation<UserRequest>> violations = validator.validate(userRequest);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private UserCreationResult createUserForBatch(UserRequest userRequest) {
         try {
-            userRepresentation = keycloakClient.realm(realm).users().get(String.valueOf(id)).toRepresentation();
-            userRoles = keycloakClient.realm(realm)
-                    .users().get(String.valueOf(id)).roles().getAll().getRealmMappings();
-            userGroups = keycloakClient.realm(realm).users().get(String.valueOf(id)).groups();
+            return UserCreationResult.created(createUser(userRequest));
+        } catch (BackendResourcesException ex) {
+            HttpStatus status = ex.getHttpStatus() != null ? ex.getHttpStatus() : HttpStatus.INTERNAL_SERVER_ERROR;
+            return UserCreationResult.failed(status, ex.getMessage());
         } catch (RuntimeException ex) {
-            log.error("Exception on \"getUserById\": ", ex);
-            throw new BackendResourcesException(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            log.error("Exception on \"createUsers\": ", ex);
+            return UserCreationResult.failed(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+        }
+    }
+
+    @Override
+    public UserResponse getUserById(UUID id) {
+        return join(fetchUser(id), "getUserById");
+    }
+
+    @Override
+    public UserLookupResponse getUsersByIds(Collection<UUID> ids) {
+        Set<UUID> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > lookupMaxSize) {
+            throw new BackendResourcesException(
+                    "Lookup must not contain more than " + lookupMaxSize + " ids", HttpStatus.BAD_REQUEST);
+        }
+        // Each permit covers the three calls of one user and is returned once all of them have ended, so at most
+        // lookupParallelism users are fetched at once even when a lookup fails early
+        Semaphore permits = new Semaphore(lookupParallelism);
+        Map<UUID, CompletableFuture<UserResponse>> lookups = new LinkedHashMap<>();
+        for (UUID id : distinctIds) {
+            permits.acquireUninterruptibly();
+            lookups.put(id, fetchUser(id, permits::release));
+        }
+        Map<UUID, UserResponse> users = new LinkedHashMap<>();
+        List<UUID> notFound = new ArrayList<>();
+        for (Map.Entry<UUID, CompletableFuture<UserResponse>> lookup : lookups.entrySet()) {
+            try {
+                users.put(lookup.getKey(), lookup.getValue().join());
+            } catch (CompletionException ex) {
+                if (isNotFound(ex.getCause())) {
+                    notFound.add(lookup.getKey());
+                    continue;
+                }
+                throw failure("getUsersByIds", ex.getCause());
+            }
+        }
+        return new UserLookupResponse(users, notFound);
+    }
+
+    @Override
+    public void streamUsers(boolean includeRoles, boolean includeGroups, Consumer<UserSummaryResponse> consumer) {
+        int first = 0;
+        CompletableFuture<List<UserRepresentation>> page = fetchPage(first);
+        while (true) {
+            List<UserRepresentation> users = join(page, "streamUsers");
+            if (users.isEmpty()) {
+                return;
+            }
+            first += users.size();
+            // The next page is requested while the current one is being enriched and written
+            CompletableFuture<List<UserRepresentation>> nextPage = users.size() < listPageSize
+                    ? CompletableFuture.completedFuture(List.of())
+                    : fetchPage(first);
+            for (int from = 0; from < users.size(); from += listEnrichParallelism) {
+                List<UserRepresentation> chunk = users.subList(from, Math.min(from + listEnrichParallelism, users.size()));
+                List<CompletableFuture<UserSummaryResponse>> summaries = chunk.stream()
+                        .map(user -> summarize(user, includeRoles, includeGroups))
+                        .toList();
+                for (CompletableFuture<UserSummaryResponse> summary : summaries) {
+                    consumer.accept(join(summary, "streamUsers"));
+                }
+            }
+            page = nextPage;
+        }
+    }
+
+    private CompletableFuture<List<UserRepresentation>> fetchPage(int first) {
+        return callAsync(KeycloakCallGuard.LIST, () -> usersResource.list(first, listPageSize));
+    }
+
+    private CompletableFuture<UserSummaryResponse> summarize(UserRepresentation user,
+                                                             boolean includeRoles,
+                                                             boolean includeGroups) {
+        if (!includeRoles && !includeGroups) {
+            return CompletableFuture.completedFuture(userMapper.userRepresentationToUserSummary(user, null, null));
+        }
+        UserResource userResource = usersResource.get(user.getId());
+        CompletableFuture<List<RoleRepresentation>> userRoles = includeRoles
+                ? callAsync(KeycloakCallGuard.ROLE_MAPPINGS,
+                        () -> userResource.roles().getAll().getRealmMappings())
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<List<GroupRepresentation>> userGroups = includeGroups
+                ? callAsync(KeycloakCallGuard.GROUPS, userResource::groups)
+                : CompletableFuture.completedFuture(null);
+        return allOrFirstFailure(userRoles, userGroups)
+                .thenApply(ignored -> userMapper.userRepresentationToUserSummary(
+                        user, userRoles.join(), userGroups.join()));
+    }
+
+    @Override
+    public CompletableFuture<UserResponse> getUserByIdAsync(UUID id) {
+        return fetchUser(id).handle((user, ex) -> {
+            if (ex != null) {
+                throw failure("getUserById", ex);
+            }
+            return user;
+        });
+    }
+
+    private <T> T join(CompletableFuture<T> call, String operation) {
+        try {
+            return call.join();
+        } catch (CompletionException ex) {
+            throw failure(operation, ex.getCause());
+        }
+    }
+
+    private BackendResourcesException failure(String operation, Throwable ex) {
+        return logged(operation, ex, toBackendResourcesException(ex));
+    }
+
+    private BackendResourcesException logged(String operation, Throwable ex, BackendResourcesException mapped) {
+        if (mapped.getHttpStatus() != null && mapped.getHttpStatus().is4xxClientError()) {
+            clientErrorLog.info("Keycloak answered \"{}\" with {}: {}",
+                    operation, mapped.getHttpStatus().value(), mapped.getMessage());
+        } else {
+            log.error("Exception on \"{}\": ", operation, ex);
+        }
+        return mapped;
+    }
+
+    private CompletableFuture<UserResponse> fetchUser(UUID id) {
+        return fetchUser(id, () -> {
+        });
+    }
+
+    /**
+     * {@code onSettled} runs once every call of the lookup has completed, which can be after the returned
+     * future has failed on the first of them.
+     */
+    private CompletableFuture<UserResponse> fetchUser(UUID id, Runnable onSettled) {
+        if (webClient != null) {
+            String userId = String.valueOf(id);
+            // zip cancels the other calls as soon as one fails, which also ends their requests
+            return Mono.zip(guarded(KeycloakCallGuard.REPRESENTATION, webClient.getUser(userId)),
+                            guarded(KeycloakCallGuard.ROLE_MAPPINGS, webClient.getRoleMappings(userId)),
+                            guarded(KeycloakCallGuard.GROUPS, webClient.getGroups(userId)))
+                    .map(user -> userMapper.userRepresentationToUserResponse(
+                            user.getT1(), user.getT2().getRealmMappings(), user.getT3()))
+                    .doFinally(signal -> onSettled.run())
+                    .toFuture();
+        }
+        UserResource userResource = usersResource.get(String.valueOf(id));
+        CompletableFuture<UserRepresentation> userRepresentation =
+                callAsync(KeycloakCallGuard.REPRESENTATION, userResource::toRepresentation);
+        CompletableFuture<List<RoleRepresentation>> userRoles = callAsync(KeycloakCallGuard.ROLE_MAPPINGS,
+                () -> userResource.roles().getAll().getRealmMappings());
+        CompletableFuture<List<GroupRepresentation>> userGroups =
+                callAsync(KeycloakCallGuard.GROUPS, userResource::groups);
+        CompletableFuture.allOf(userRepresentation, userRoles, userGroups)
+                .whenComplete((ignored, ex) -> onSettled.run());
+        return allOrFirstFailure(userRepresentation, userRoles, userGroups)
+                .thenApply(ignored -> userMapper.userRepresentationToUserResponse(
+                        userRepresentation.join(), userRoles.join(), userGroups.join()));
+    }
+
+    private <T> CompletableFuture<T> callAsync(String operation, Supplier<T> call) {
+        return keycloakCallGuard.callAsync(operation, call, keycloakExecutor, callTimeout);
+    }
+
+    // The timeout sits inside the guard so that the circuit breaker counts slow calls as failures
+    private <T> Mono<T> guarded(String operation, Mono<T> call) {
+        return keycloakCallGuard.call(operation, call.timeout(callTimeout));
+    }
+
+    /**
+     * Completes when every call has completed, or as soon as one of them fails so the caller does not sit
+     * on the remaining calls. The remaining calls still run to the end on the executor: cancelling a
+     * {@link CompletableFuture} would not interrupt them.
+     */
+    private static CompletableFuture<Void> allOrFirstFailure(CompletableFuture<?>... calls) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(calls);
+        for (CompletableFuture<?> call : calls) {
+            call.whenComplete((result, ex) -> {
+                if (ex != null) {
+                    all.completeExceptionally(ex);
+                }
+            });
+        }
+        return all;
+    }
+
+    private static boolean isNotFound(Throwable ex) {
+        return ex instanceof NotFoundException || ex instanceof WebClientResponseException.NotFound;
+    }
+
+    private static BackendResourcesException toBackendResourcesException(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof TimeoutException) {
+            return new BackendResourcesException("Keycloak did not respond in time", HttpStatus.GATEWAY_TIMEOUT);
+        }
+        if (cause instanceof CallNotPermittedException || cause instanceof BulkheadFullException) {
+            return new BackendResourcesException("Keycloak is unavailable", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return new BackendResourcesException("Too many Keycloak calls in progress", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (isNotFound(cause)) {
+            return new BackendResourcesException("User not found", HttpStatus.NOT_FOUND);
         }
-        return userMapper.userRepresentationToUserResponse(userRepresentation, userRoles, userGroups);
+        return new BackendResourcesException(cause.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     private CredentialRepresentation preparePasswordRepresentation(String password) {
@@ -12,7 +12,8 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
-@SpringBootTest//(classes = BackendResourcesApplication.class)
+// StartupWarmupTest turns the warm-up back on; the other contexts start without it
+@SpringBootTest(properties = "startup.warmup.enabled=false")//(classes = BackendResourcesApplication.class)
 @AutoConfigureMockMvc
 public abstract class BaseIntegrationTest {
 
@@ -0,0 +1,58 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.security.CachingJwtDecoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingJwtDecoderTest {
+
+    private final AtomicInteger decodeCount = new AtomicInteger();
+
+    @Test
+    public void decodeSameTokenOnce() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(countingDecoder(Instant.now().plusSeconds(300)), 100);
+
+        Jwt first = decoder.decode("token");
+        Jwt second = decoder.decode("token");
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, decodeCount.get());
+    }
+
+    @Test
+    public void decodeDifferentTokensSeparately() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(countingDecoder(Instant.now().plusSeconds(300)), 100);
+
+        decoder.decode("token");
+        decoder.decode("other-token");
+
+        Assertions.assertEquals(2, decodeCount.get());
+    }
+
+    @Test
+    public void doNotCacheExpiredToken() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(countingDecoder(Instant.now().minusSeconds(1)), 100);
+
+        decoder.decode("token");
+        decoder.decode("token");
+
+        Assertions.assertEquals(2, decodeCount.get());
+    }
+
+    private JwtDecoder countingDecoder(Instant expiresAt) {
+        return token -> {
+            decodeCount.incrementAndGet();
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("user-id")
+                    .issuedAt(expiresAt.minusSeconds(600))
+                    .expiresAt(expiresAt)
+                    .build();
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.security.KeycloakJwtAuthenticationConverter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class KeycloakJwtAuthenticationConverterTest {
+
+    private final KeycloakJwtAuthenticationConverter converter = new KeycloakJwtAuthenticationConverter(100, 100);
+
+    @Test
+    public void convertRealmRoles() {
+        AbstractAuthenticationToken authentication = converter.convert(
+                jwt(UUID.randomUUID().toString(), Map.of("roles", List.of("MODERATOR", "default-roles-itm"))));
+
+        Assertions.assertEquals("user-id", authentication.getName());
+        Assertions.assertEquals(
+                List.of(new SimpleGrantedAuthority("ROLE_MODERATOR"), new SimpleGrantedAuthority("ROLE_default-roles-itm")),
+                List.copyOf(authentication.getAuthorities()));
+    }
+
+    @Test
+    public void convertWithoutRealmAccess() {
+        Jwt jwt = Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user-id")
+                .build();
+
+        AbstractAuthenticationToken authentication = converter.convert(jwt);
+
+        Assertions.assertEquals("user-id", authentication.getName());
+        Assertions.assertTrue(authentication.getAuthorities().isEmpty());
+    }
+
+    @Test
+    public void convertWithoutRoles() {
+        AbstractAuthenticationToken authentication = converter.convert(
+                jwt(UUID.randomUUID().toString(), Map.of("other", "value")));
+
+        Assertions.assertTrue(authentication.getAuthorities().isEmpty());
+    }
+
+    @Test
+    public void shareAuthoritiesBetweenTokensWithSameRoles() {
+        Collection<GrantedAuthority> first = converter.getAuthorities(
+                jwt(UUID.randomUUID().toString(), Map.of("roles", List.of("MODERATOR"))));
+        Collection<GrantedAuthority> second = converter.getAuthorities(
+                jwt(UUID.randomUUID().toString(), Map.of("roles", List.of("MODERATOR"))));
+
+        Assertions.assertSame(first, second);
+    }
+
+    @Test
+    public void skipNullRoles() {
+        AbstractAuthenticationToken authentication = converter.convert(
+                jwt(UUID.randomUUID().toString(), Map.of("roles", Arrays.asList("MODERATOR", null))));
+
+        Assertions.assertEquals(List.of(new SimpleGrantedAuthority("ROLE_MODERATOR")),
+                List.copyOf(authentication.getAuthorities()));
+    }
+
+    private static Jwt jwt(String tokenId, Map<String, Object> realmAccess) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("user-id")
+                .jti(tokenId)
+                .expiresAt(Instant.now().plusSeconds(300))
+                .claim("realm_access", realmAccess)
+                .build();
+    }
+}
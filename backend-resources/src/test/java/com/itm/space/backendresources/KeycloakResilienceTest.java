@@ -0,0 +1,188 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.api.response.UserLookupResponse;
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.service.UserService;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class KeycloakResilienceTest extends BaseIntegrationTest {
+
+    private static KeycloakStub keycloakStub;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ThreadPoolTaskExecutor keycloakExecutor;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) throws IOException {
+        keycloakStub = KeycloakStub.start();
+        registry.add("keycloak.auth-server-url", keycloakStub::getServerUrl);
+        registry.add("keycloak.circuit-breaker.sliding-window-size", () -> 6);
+        registry.add("keycloak.circuit-breaker.minimum-number-of-calls", () -> 6);
+        registry.add("keycloak.circuit-breaker.wait-duration-in-open-state", () -> "1m");
+        registry.add("users.cache.expire-after-write", () -> "100ms");
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        keycloakStub.close();
+    }
+
+    @BeforeEach
+    void resetKeycloak() {
+        keycloakStub.failAdminCalls(0);
+        keycloakStub.setAdminLatency(Duration.ZERO);
+        circuitBreakerRegistry.circuitBreaker("keycloak").reset();
+    }
+
+    @Test
+    public void getUserByIdFromKeycloak() {
+        UUID id = keycloakStub.addUser("moderator", "moderator@test.test");
+
+        UserResponse user = userService.getUserById(id);
+
+        Assertions.assertEquals("moderator@test.test", user.getEmail());
+        Assertions.assertEquals("default-roles-itm", user.getRoles().get(0));
+        Assertions.assertEquals("Moderators", user.getGroups().get(0));
+        Assertions.assertTrue(meterRegistry.get("keycloak.admin.calls")
+                .tag("operation", "representation")
+                .tag("outcome", "success")
+                .timer().count() > 0);
+    }
+
+    @Test
+    public void sizeBulkheadsFromFanOutParallelism() {
+        userService.getUsersByIds(List.of(keycloakStub.addUser("sized", "sized@test.test")));
+
+        // Two concurrent lookups of users.lookup.parallelism (16) users each fit without rejections
+        Assertions.assertEquals(32, bulkheadRegistry.bulkhead("keycloak-representation")
+                .getBulkheadConfig().getMaxConcurrentCalls());
+    }
+
+    @Test
+    public void failFastWhenCircuitIsOpen() throws InterruptedException {
+        keycloakStub.failAdminCalls(500);
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("keycloak");
+        for (int i = 0; i < 10 && circuitBreaker.getState() != CircuitBreaker.State.OPEN; i++) {
+            UUID id = UUID.randomUUID();
+            Assertions.assertThrows(BackendResourcesException.class, () -> userService.getUserById(id));
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        // Lookups fail on their first failed call; let the other calls of the same lookups finish
+        while (keycloakExecutor.getActiveCount() > 0) {
+            Thread.sleep(10);
+        }
+        int requestsBeforeOpen = keycloakStub.getAdminRequests();
+        long tasksBeforeOpen = keycloakExecutor.getThreadPoolExecutor().getTaskCount();
+
+        BackendResourcesException ex = Assertions.assertThrows(BackendResourcesException.class,
+                () -> userService.getUserById(UUID.randomUUID()));
+
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getHttpStatus());
+        Assertions.assertEquals(requestsBeforeOpen, keycloakStub.getAdminRequests());
+        // Rejected before reaching the executor, not after waiting in its queue
+        Assertions.assertEquals(tasksBeforeOpen, keycloakExecutor.getThreadPoolExecutor().getTaskCount());
+    }
+
+    @Test
+    public void fallBackToLastKnownUserWhenCircuitIsOpen() throws InterruptedException {
+        UUID id = keycloakStub.addUser("cached", "cached@test.test");
+        userService.getUserById(id);
+        circuitBreakerRegistry.circuitBreaker("keycloak").transitionToForcedOpenState();
+        Thread.sleep(200);
+
+        UserResponse user = userService.getUserById(id);
+
+        Assertions.assertEquals("cached@test.test", user.getEmail());
+    }
+
+    @Test
+    public void doNotCountNotFoundAsFailure() {
+        for (int i = 0; i < 10; i++) {
+            UUID id = UUID.randomUUID();
+            BackendResourcesException ex = Assertions.assertThrows(BackendResourcesException.class,
+                    () -> userService.getUserById(id));
+            Assertions.assertNotEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getHttpStatus());
+        }
+    }
+
+    @Test
+    public void answerRepeatedUnknownIdsWithoutKeycloak() {
+        UUID id = UUID.randomUUID();
+        BackendResourcesException ex = Assertions.assertThrows(BackendResourcesException.class,
+                () -> userService.getUserById(id));
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, ex.getHttpStatus());
+        Assertions.assertEquals(0, ex.getStackTrace().length);
+
+        int adminRequests = keycloakStub.getAdminRequests();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(HttpStatus.NOT_FOUND, Assertions.assertThrows(BackendResourcesException.class,
+                    () -> userService.getUserById(id)).getHttpStatus());
+        }
+        Assertions.assertEquals(List.of(id), userService.getUsersByIds(List.of(id)).getNotFound());
+        Assertions.assertEquals(adminRequests, keycloakStub.getAdminRequests());
+    }
+
+    @Test
+    public void reportUnknownIdAsNotFoundWhenBatchJoinsItsSingleLookup() {
+        UUID knownId = keycloakStub.addUser("batched", "batched@test.test");
+        UUID unknownId = UUID.randomUUID();
+        keycloakStub.setAdminLatency(Duration.ofMillis(300));
+        CompletableFuture<UserResponse> single = userService.getUserByIdAsync(unknownId);
+
+        UserLookupResponse lookup = userService.getUsersByIds(List.of(unknownId, knownId));
+
+        Assertions.assertEquals(List.of(unknownId), lookup.getNotFound());
+        Assertions.assertEquals("batched@test.test", lookup.getUsers().get(knownId).getEmail());
+        Assertions.assertTrue(single.isCompletedExceptionally());
+    }
+
+    @Test
+    public void rejectLookupOverMaxSizeBeforeTheCache() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 201; i++) {
+            ids.add(keycloakStub.addUser("lookup" + i, "lookup" + i + "@test.test"));
+        }
+        // Every id is cached, so the lookup would not reach the limit check in UserServiceImpl
+        userService.getUsersByIds(ids.subList(0, 100));
+        userService.getUsersByIds(ids.subList(100, ids.size()));
+        int adminRequests = keycloakStub.getAdminRequests();
+
+        BackendResourcesException ex = Assertions.assertThrows(BackendResourcesException.class,
+                () -> userService.getUsersByIds(ids));
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, ex.getHttpStatus());
+        Assertions.assertEquals(adminRequests, keycloakStub.getAdminRequests());
+    }
+}
@@ -0,0 +1,30 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.configuration.KeycloakRuntimeHints;
+import org.jboss.resteasy.client.jaxrs.internal.proxy.ResteasyClientProxy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.MappingsRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+public class KeycloakRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    public void registerAdminClientProxiesAndRepresentations() {
+        new KeycloakRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        Assertions.assertTrue(RuntimeHintsPredicates.proxies()
+                .forInterfaces(UsersResource.class, ResteasyClientProxy.class).test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection()
+                .onMethod(UserRepresentation.class, "getEmail").test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.reflection()
+                .onMethod(MappingsRepresentation.class, "setRealmMappings").test(hints));
+        Assertions.assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/javax.ws.rs.ext.Providers").test(hints));
+    }
+}
@@ -0,0 +1,312 @@
+package com.itm.space.backendresources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for realm ITM of Keycloak: the token, JWKS and discovery endpoints, and the user,
+ * role-mapping and group admin endpoints used by the admin client, and the admin events of changes made
+ * through the stub. Tokens are RS256-signed with a key
+ * published in the JWKS, so the resource server can verify them.
+ * <p>
+ * Admin calls can be slowed down by a fixed latency and made to fail, either always or at random.
+ */
+public class KeycloakStub implements AutoCloseable {
+    private static final String REALM = "ITM";
+    private static final String REALM_PATH = "/realms/" + REALM;
+    private static final String USERS_PATH = "/admin/realms/" + REALM + "/users";
+    private static final String ADMIN_EVENTS_PATH = "/admin/realms/" + REALM + "/admin-events";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Map<String, Object>> users = new LinkedHashMap<>();
+    private final Set<String> usernames = new HashSet<>();
+    private final List<Map<String, Object>> adminEvents = new ArrayList<>();
+    private final AtomicInteger adminRequests = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final RSAKey signingKey;
+    private final HttpServer server;
+    private volatile int adminFailureStatus;
+    private volatile double adminErrorRate;
+    private volatile int adminErrorStatus;
+    private volatile Duration adminLatency = Duration.ZERO;
+
+    private KeycloakStub() throws IOException {
+        try {
+            signingKey = new RSAKeyGenerator(2048)
+                    .keyID(UUID.randomUUID().toString())
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.RS256)
+                    .generate();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(REALM_PATH + "/.well-known/openid-configuration", this::handleDiscovery);
+        server.createContext(REALM_PATH + "/protocol/openid-connect/certs", this::handleCerts);
+        server.createContext(REALM_PATH + "/protocol/openid-connect/token", this::handleToken);
+        server.createContext(USERS_PATH, this::handleUsers);
+        server.createContext(ADMIN_EVENTS_PATH, this::handleAdminEvents);
+        server.setExecutor(executor);
+    }
+
+    public static KeycloakStub start() throws IOException {
+        KeycloakStub stub = new KeycloakStub();
+        stub.server.start();
+        return stub;
+    }
+
+    public String getServerUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public String getIssuerUri() {
+        return getServerUrl() + REALM_PATH;
+    }
+
+    public String getJwkSetUri() {
+        return getIssuerUri() + "/protocol/openid-connect/certs";
+    }
+
+    /**
+     * Signs an access token for {@code subject} carrying the given realm roles, valid for an hour.
+     */
+    public String issueToken(String subject, String... realmRoles) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(getIssuerUri())
+                .subject(subject)
+                .jwtID(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(3600)))
+                .claim("realm_access", Map.of("roles", List.of(realmRoles)))
+                .build();
+        SignedJWT jwt = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+        try {
+            jwt.sign(new RSASSASigner(signingKey));
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return jwt.serialize();
+    }
+
+    public synchronized UUID addUser(String username, String email) {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", id.toString());
+        user.put("username", username);
+        user.put("email", email);
+        user.put("firstName", username);
+        user.put("lastName", username);
+        user.put("enabled", true);
+        users.put(id.toString(), user);
+        usernames.add(username);
+        return id;
+    }
+
+    /**
+     * Changes the user's email and records the admin event Keycloak would.
+     */
+    public synchronized void updateUser(UUID id, String email) {
+        users.get(id.toString()).put("email", email);
+        recordAdminEvent("UPDATE", "users/" + id);
+    }
+
+    public synchronized void deleteUser(UUID id) {
+        Map<String, Object> user = users.remove(id.toString());
+        usernames.remove((String) user.get("username"));
+        recordAdminEvent("DELETE", "users/" + id);
+    }
+
+    /**
+     * Makes every admin call answer with {@code status}; {@code 0} restores normal behaviour.
+     */
+    public void failAdminCalls(int status) {
+        adminFailureStatus = status;
+    }
+
+    /**
+     * Makes a random share of admin calls answer with {@code status}.
+     */
+    public void failAdminCalls(double errorRate, int status) {
+        adminErrorRate = errorRate;
+        adminErrorStatus = status;
+    }
+
+    /**
+     * Delays every admin call by {@code latency} before it is answered.
+     */
+    public void setAdminLatency(Duration latency) {
+        adminLatency = latency;
+    }
+
+    public int getAdminRequests() {
+        return adminRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleDiscovery(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, Map.of(
+                "issuer", getIssuerUri(),
+                "jwks_uri", getJwkSetUri(),
+                "token_endpoint", getIssuerUri() + "/protocol/openid-connect/token"));
+    }
+
+    private void handleCerts(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, new JWKSet(signingKey.toPublicJWK()).toJSONObject());
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, Map.of(
+                "access_token", issueToken("service-account-backend-resources"),
+                "expires_in", 300,
+                "token_type", "Bearer"));
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        adminRequests.incrementAndGet();
+        sleep(adminLatency);
+        if (adminFailureStatus != 0) {
+            respond(exchange, adminFailureStatus, Map.of("error", "injected failure"));
+            return;
+        }
+        if (adminErrorRate > 0 && ThreadLocalRandom.current().nextDouble() < adminErrorRate) {
+            respond(exchange, adminErrorStatus, Map.of("error", "injected failure"));
+            return;
+        }
+        String[] segments = exchange.getRequestURI().getPath().substring(USERS_PATH.length()).split("/");
+        String method = exchange.getRequestMethod();
+        if (segments.length <= 1) {
+            if ("POST".equals(method)) {
+                createUser(exchange);
+            } else {
+                respond(exchange, 200, listUsers());
+            }
+            return;
+        }
+        if (segments.length == 2 && "count".equals(segments[1])) {
+            respond(exchange, 200, listUsers().size());
+            return;
+        }
+        Map<String, Object> user = findUser(segments[1]);
+        if (user == null) {
+            respond(exchange, 404, Map.of("error", "User not found"));
+        } else if (segments.length == 2) {
+            respond(exchange, 200, user);
+        } else if ("role-mappings".equals(segments[2])) {
+            respond(exchange, 200, Map.of("realmMappings", List.of(Map.of("name", "default-roles-itm"))));
+        } else if ("groups".equals(segments[2])) {
+            respond(exchange, 200, List.of(Map.of("name", "Moderators")));
+        } else {
+            respond(exchange, 404, Map.of("error", "Unknown resource"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void createUser(HttpExchange exchange) throws IOException {
+        Map<String, Object> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+        UUID id;
+        synchronized (this) {
+            if (usernames.contains((String) request.get("username"))) {
+                respond(exchange, 409, Map.of("errorMessage", "User exists with same username"));
+                return;
+            }
+            id = addUser((String) request.get("username"), (String) request.get("email"));
+            recordAdminEvent("CREATE", "users/" + id);
+        }
+        exchange.getResponseHeaders().add("Location", getServerUrl() + USERS_PATH + "/" + id);
+        exchange.sendResponseHeaders(201, -1);
+        exchange.close();
+    }
+
+    // Newest first, like Keycloak
+    private synchronized void recordAdminEvent(String operationType, String resourcePath) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("time", System.currentTimeMillis());
+        event.put("realmId", REALM);
+        event.put("operationType", operationType);
+        event.put("resourceType", "USER");
+        event.put("resourcePath", resourcePath);
+        adminEvents.add(0, event);
+    }
+
+    private void handleAdminEvents(HttpExchange exchange) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                String[] nameAndValue = parameter.split("=", 2);
+                query.put(nameAndValue[0], nameAndValue.length > 1 ? nameAndValue[1] : "");
+            }
+        }
+        int first = Integer.parseInt(query.getOrDefault("first", "0"));
+        int max = Integer.parseInt(query.getOrDefault("max", "100"));
+        List<Map<String, Object>> page;
+        synchronized (this) {
+            page = new ArrayList<>(adminEvents.subList(Math.min(first, adminEvents.size()),
+                    Math.min(first + max, adminEvents.size())));
+        }
+        respond(exchange, 200, page);
+    }
+
+    private synchronized Map<String, Object> findUser(String id) {
+        return users.get(id);
+    }
+
+    private synchronized List<Map<String, Object>> listUsers() {
+        return new ArrayList<>(users.values());
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,64 @@
+package com.itm.space.backendresources;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load generator: requests start at a fixed arrival rate no matter how long earlier ones take,
+ * and each latency is measured from the request's scheduled start. A stalled server therefore shows up in
+ * the percentiles instead of quietly lowering the offered load.
+ */
+public class LoadGenerator {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    public LoadReport run(String scenario, int requestsPerSecond, Duration duration,
+                          Supplier<HttpRequest> requests) {
+        Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        AtomicLong failures = new AtomicLong();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long total = duration.toNanos() / intervalNanos;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>((int) total);
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long scheduledAt = start + i * intervalNanos;
+            long now;
+            while ((now = System.nanoTime()) < scheduledAt) {
+                LockSupport.parkNanos(scheduledAt - now);
+            }
+            inFlight.add(httpClient.sendAsync(requests.get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        latencies.recordValue(
+                                Math.min(HIGHEST_TRACKABLE_MICROS, (System.nanoTime() - scheduledAt) / 1000));
+                        if (ex != null) {
+                            failures.incrementAndGet();
+                        } else {
+                            statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                .exceptionally(ex -> null)
+                .join();
+        return new LoadReport(scenario, requestsPerSecond, latencies, statuses, failures.get());
+    }
+}
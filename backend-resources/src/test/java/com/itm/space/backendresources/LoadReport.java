@@ -0,0 +1,65 @@
+package com.itm.space.backendresources;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram (in microseconds) and response statuses of one {@link LoadGenerator} run.
+ */
+public class LoadReport {
+    private final String scenario;
+    private final int requestsPerSecond;
+    private final Histogram latencies;
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+    private final long failures;
+
+    LoadReport(String scenario, int requestsPerSecond, Histogram latencies, Map<Integer, LongAdder> statuses,
+               long failures) {
+        this.scenario = scenario;
+        this.requestsPerSecond = requestsPerSecond;
+        this.latencies = latencies;
+        this.failures = failures;
+        statuses.forEach((status, count) -> this.statuses.put(status, count.sum()));
+    }
+
+    public long getRequests() {
+        return latencies.getTotalCount();
+    }
+
+    public Map<Integer, Long> getStatuses() {
+        return statuses;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getPercentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public String summary() {
+        return String.format("%s @ %d req/s: %d requests, p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms, "
+                        + "statuses=%s, failures=%d",
+                scenario, requestsPerSecond, getRequests(), getPercentileMillis(50), getPercentileMillis(99),
+                getPercentileMillis(99.9), latencies.getMaxValue() / 1000.0, statuses, failures);
+    }
+
+    /**
+     * Writes the percentile distribution in milliseconds to {@code <scenario>.hgrm}, the format read by
+     * HdrHistogram's plotter.
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(scenario + ".hgrm")))) {
+            latencies.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
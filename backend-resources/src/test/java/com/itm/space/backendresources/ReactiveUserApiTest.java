@@ -0,0 +1,91 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.api.request.UserRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class ReactiveUserApiTest extends BaseIntegrationTest {
+
+    private static KeycloakStub keycloakStub;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) throws IOException {
+        keycloakStub = KeycloakStub.start();
+        registry.add("keycloak.auth-server-url", keycloakStub::getServerUrl);
+        registry.add("users.api.mode", () -> "reactive");
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        keycloakStub.close();
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void getUserByIdWithoutBlocking() throws Exception {
+        UUID id = keycloakStub.addUser("reactive", "reactive@test.test");
+
+        MvcResult started = mvc.perform(get("/api/users/{id}", id).accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("reactive@test.test"))
+                .andExpect(jsonPath("$.roles[0]").value("default-roles-itm"))
+                .andExpect(jsonPath("$.groups[0]").value("Moderators"))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        MvcResult revalidation = mvc.perform(get("/api/users/{id}", id).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(revalidation))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void mapKeycloakErrorsLikeBlockingMode() throws Exception {
+        UserRequest userRequest = new UserRequest("duplicate", "duplicate@test.test", "test", "Test", "Test");
+        keycloakStub.addUser("duplicate", "duplicate@test.test");
+
+        MvcResult created = mvc.perform(requestWithContent(post("/api/users"),
+                        new UserRequest("created", "created@test.test", "test", "Test", "Test")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(created))
+                .andExpect(status().isOk());
+
+        MvcResult conflict = mvc.perform(requestWithContent(post("/api/users"), userRequest))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(conflict))
+                .andExpect(status().isConflict());
+
+        Assertions.assertTrue(meterRegistry.get("keycloak.admin.calls")
+                .tag("operation", "create")
+                .tag("outcome", "client-error")
+                .timer().count() > 0);
+    }
+}
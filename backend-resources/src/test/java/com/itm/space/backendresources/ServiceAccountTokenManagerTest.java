@@ -0,0 +1,72 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.security.ServiceAccountTokenManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServiceAccountTokenManagerTest {
+
+    private KeycloakStub keycloakStub;
+    private ServiceAccountTokenManager tokenManager;
+
+    @BeforeEach
+    void start() throws IOException {
+        keycloakStub = KeycloakStub.start();
+        tokenManager = new ServiceAccountTokenManager(keycloakStub.getServerUrl(), "ITM", "backend-resources",
+                "secret", 0.8, Duration.ofSeconds(5), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void close() {
+        tokenManager.close();
+        keycloakStub.close();
+    }
+
+    @Test
+    public void replaceTokenAttachedToRejectedRequestAfterConcurrentRefresh() {
+        String initial = tokenManager.getAccessToken();
+        List<String> sent = new ArrayList<>();
+
+        String result = tokenManager.retryOnUnauthorized(() -> {
+            if (sent.isEmpty()) {
+                // Another thread refreshes between the start of the call and the request going out
+                CompletableFuture.runAsync(() -> tokenManager.refreshAccessToken(initial)).join();
+                sent.add(send());
+                throw new WebApplicationException(Response.status(Response.Status.UNAUTHORIZED).build());
+            }
+            sent.add(send());
+            return "retried";
+        });
+
+        Assertions.assertEquals("retried", result);
+        Assertions.assertEquals(2, sent.size());
+        Assertions.assertNotEquals("Bearer " + initial, sent.get(0));
+        // The retry must not reuse the token Keycloak has just rejected
+        Assertions.assertNotEquals(sent.get(0), sent.get(1));
+    }
+
+    private String send() {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ClientRequestContext requestContext = mock(ClientRequestContext.class);
+        when(requestContext.getHeaders()).thenReturn(headers);
+        tokenManager.filter(requestContext);
+        return (String) headers.getFirst(HttpHeaders.AUTHORIZATION);
+    }
+}
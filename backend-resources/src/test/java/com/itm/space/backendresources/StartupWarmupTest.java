@@ -0,0 +1,56 @@
+package com.itm.space.backendresources;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class StartupWarmupTest extends BaseIntegrationTest {
+
+    private static KeycloakStub keycloakStub;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) throws IOException {
+        keycloakStub = KeycloakStub.start();
+        registry.add("keycloak.auth-server-url", keycloakStub::getServerUrl);
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", keycloakStub::getIssuerUri);
+        registry.add("startup.warmup.enabled", () -> true);
+        registry.add("startup.warmup.iterations", () -> 100);
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        keycloakStub.close();
+    }
+
+    @Test
+    public void warmUpBeforeReportingReady() throws Exception {
+        for (String step : List.of("jwks", "token", "keycloak-connections", "serialization", "all")) {
+            Assertions.assertEquals(1, meterRegistry.get("startup.warmup")
+                    .tag("step", step)
+                    .tag("outcome", "success")
+                    .timer().count(), step);
+        }
+        Assertions.assertEquals(8, meterRegistry.get("keycloak.admin.calls")
+                .tag("operation", "count")
+                .tag("outcome", "success")
+                .timer().count());
+
+        mvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+    }
+}
@@ -1,21 +1,33 @@
 package com.itm.space.backendresources;
 
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
+import com.itm.space.backendresources.api.response.UserLookupResponse;
 import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.api.response.UserSummaryResponse;
 import com.itm.space.backendresources.exception.BackendResourcesException;
 import com.itm.space.backendresources.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -52,13 +64,76 @@ public class UserControllerTest extends BaseIntegrationTest {
                 .andExpect(jsonPath("$.lastName").value("test"))
                 .andExpect(jsonPath("$.email").value("test@test.test"))
                 .andExpect(jsonPath("$.roles[0]").value("default-roles-itm"))
-                .andExpect(jsonPath("$.groups[0]").value("Moderators"));
+                .andExpect(jsonPath("$.groups[0]").value("Moderators"))
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"")));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void getByIdNotModified() throws Exception {
+        UUID id = UUID.fromString("f37b9ce3-523c-408c-b8cf-121f506b4985");
+        when(userService.getUserById(id)).thenReturn(new UserResponse(
+                "test",
+                "test",
+                "test@test.test",
+                List.of("default-roles-itm", "MODERATOR"),
+                List.of("Moderators")));
+
+        String eTag = mvc.perform(get("/api/users/{id}", id)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/users/{id}", id)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void getByIdETagIgnoresRoleOrder() throws Exception {
+        UUID id = UUID.fromString("f37b9ce3-523c-408c-b8cf-121f506b4985");
+        when(userService.getUserById(id))
+                .thenReturn(new UserResponse("test", "test", "test@test.test",
+                        List.of("default-roles-itm", "MODERATOR"), List.of("Moderators")))
+                .thenReturn(new UserResponse("test", "test", "test@test.test",
+                        List.of("MODERATOR", "default-roles-itm"), List.of("Moderators")))
+                .thenReturn(new UserResponse("test", "test", "changed@test.test",
+                        List.of("MODERATOR", "default-roles-itm"), List.of("Moderators")));
+
+        // A strong tag promises the same bytes, so the body is sent sorted whatever order Keycloak returned
+        String eTag = mvc.perform(get("/api/users/{id}", id))
+                .andExpect(jsonPath("$.roles[0]").value("MODERATOR"))
+                .andExpect(jsonPath("$.roles[1]").value("default-roles-itm"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/users/{id}", id)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/users/{id}", id)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("changed@test.test"));
     }
 
     @Test
     @WithMockUser(roles = "MODERATOR")
     public void getByIdUserNotFound() throws Exception {
-        when(userService.getUserById(any())).thenThrow(new BackendResourcesException("Exception", HttpStatus.INTERNAL_SERVER_ERROR));
+        when(userService.getUserById(any())).thenThrow(new BackendResourcesException("User not found", HttpStatus.NOT_FOUND));
+
+        mvc.perform(get("/api/users/{id}", UUID.randomUUID())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void getByIdExceptionWithoutStatus() throws Exception {
+        when(userService.getUserById(any())).thenThrow(new BackendResourcesException("Exception", null));
 
         mvc.perform(get("/api/users/{id}", UUID.randomUUID())
                         .accept(MediaType.APPLICATION_JSON))
@@ -80,6 +155,74 @@ public class UserControllerTest extends BaseIntegrationTest {
                 .andExpect(status().isForbidden());
     }
 
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void getByIdsSuccess() throws Exception {
+        UUID existingId = UUID.fromString("f37b9ce3-523c-408c-b8cf-121f506b4985");
+        UUID missingId = UUID.fromString("0f9d3a51-7c2e-4a8b-9d0e-3b1f6c2a4e77");
+        UserResponse user = new UserResponse(
+                "test",
+                "test",
+                "test@test.test",
+                List.of("default-roles-itm"),
+                List.of("Moderators"));
+
+        when(userService.getUsersByIds(List.of(existingId, missingId)))
+                .thenReturn(new UserLookupResponse(Map.of(existingId, user), List.of(missingId)));
+
+        mvc.perform(get("/api/users")
+                        .param("ids", existingId.toString(), missingId.toString())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users['" + existingId + "'].email").value("test@test.test"))
+                .andExpect(jsonPath("$.notFound[0]").value(missingId.toString()));
+    }
+
+    @Test
+    @WithMockUser(roles = "other")
+    public void getByIdsIncorrectRoles() throws Exception {
+        mvc.perform(get("/api/users")
+                        .param("ids", UUID.randomUUID().toString())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void listUsersSuccess() throws Exception {
+        UUID id = UUID.fromString("f37b9ce3-523c-408c-b8cf-121f506b4985");
+        doAnswer(invocation -> {
+            Consumer<UserSummaryResponse> consumer = invocation.getArgument(2);
+            consumer.accept(new UserSummaryResponse(id, "test", "test", "test", "test@test.test",
+                    List.of("default-roles-itm"), null));
+            consumer.accept(new UserSummaryResponse(UUID.randomUUID(), "other", "other", "other", "other@test.test",
+                    List.of(), null));
+            return null;
+        }).when(userService).streamUsers(eq(true), eq(false), any());
+
+        MvcResult result = mvc.perform(get("/api/users")
+                        .param("include", "roles")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(startsWith(
+                        "{\"id\":\"" + id + "\",\"username\":\"test\",\"firstName\":\"test\",\"lastName\":\"test\","
+                                + "\"email\":\"test@test.test\",\"roles\":[\"default-roles-itm\"]}\n")))
+                .andExpect(content().string(containsString("\"username\":\"other\"")));
+    }
+
+    @Test
+    @WithMockUser(roles = "other")
+    public void listUsersIncorrectRoles() throws Exception {
+        mvc.perform(get("/api/users")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @WithMockUser(roles = "MODERATOR")
     public void createSuccess() throws Exception {
@@ -129,6 +272,31 @@ public class UserControllerTest extends BaseIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void createBatchSuccess() throws Exception {
+        UUID createdId = UUID.fromString("f37b9ce3-523c-408c-b8cf-121f506b4985");
+        when(userService.createUsers(any())).thenReturn(List.of(
+                UserCreationResult.created(createdId),
+                UserCreationResult.failed(HttpStatus.CONFLICT, "User exists with same username")));
+
+        mvc.perform(requestWithContent(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON), List.of(validUserRequest, validUserRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(createdId.toString()))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[1].message").value("User exists with same username"));
+    }
+
+    @Test
+    @WithMockUser(roles = "other")
+    public void createBatchIncorrectRoles() throws Exception {
+        mvc.perform(requestWithContent(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON), List.of(validUserRequest)))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @WithMockUser(roles = "MODERATOR")
     public void helloSuccess() throws Exception {
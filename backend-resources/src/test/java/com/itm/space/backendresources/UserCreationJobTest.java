@@ -0,0 +1,126 @@
+package com.itm.space.backendresources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationJobResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class UserCreationJobTest extends BaseIntegrationTest {
+
+    private static KeycloakStub keycloakStub;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) throws IOException {
+        keycloakStub = KeycloakStub.start();
+        registry.add("keycloak.auth-server-url", keycloakStub::getServerUrl);
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        keycloakStub.close();
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void createUserInBackground() throws Exception {
+        UserRequest userRequest = new UserRequest("queued", "queued@test.test", "test", "Test", "Test");
+
+        MvcResult accepted = mvc.perform(createJob(userRequest, null))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andReturn();
+        UserCreationJobResponse job = awaitJob(accepted.getResponse().getHeader(HttpHeaders.LOCATION));
+
+        Assertions.assertEquals(UserCreationJobResponse.State.SUCCEEDED, job.getState());
+        Assertions.assertEquals(201, job.getResult().getStatus());
+        mvc.perform(get("/api/users/{id}", job.getResult().getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("queued@test.test"));
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void answerRetriesWithOriginalJob() throws Exception {
+        UserRequest userRequest = new UserRequest("retried", "retried@test.test", "test", "Test", "Test");
+        String key = UUID.randomUUID().toString();
+
+        String location = mvc.perform(createJob(userRequest, key))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+        UserCreationJobResponse job = awaitJob(location);
+        mvc.perform(createJob(userRequest, key))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, location))
+                .andExpect(jsonPath("$.result.id").value(job.getResult().getId().toString()));
+
+        mvc.perform(createJob(new UserRequest("other", "other@test.test", "test", "Test", "Test"), key))
+                .andExpect(status().isUnprocessableEntity());
+        // Without the key the retry is a new creation, which Keycloak refuses as a duplicate
+        UserCreationJobResponse duplicate = awaitJob(mvc.perform(createJob(userRequest, null))
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION));
+        Assertions.assertEquals(UserCreationJobResponse.State.FAILED, duplicate.getState());
+        Assertions.assertEquals(409, duplicate.getResult().getStatus());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void acceptRespondAsyncAmongOtherPreferences() throws Exception {
+        UserRequest userRequest = new UserRequest("preferred", "preferred@test.test", "test", "Test", "Test");
+
+        mvc.perform(requestWithContent(post("/api/users"), userRequest)
+                        .header("Prefer", "return=minimal, Respond-Async; foo=bar, wait=10"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"));
+        mvc.perform(requestWithContent(post("/api/users"),
+                        new UserRequest("direct", "direct@test.test", "test", "Test", "Test"))
+                        .header("Prefer", "wait=10"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void validateBeforeQueueing() throws Exception {
+        mvc.perform(createJob(new UserRequest("", "invalid", "", "", ""), null))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/users/jobs/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    private MockHttpServletRequestBuilder createJob(UserRequest userRequest, String idempotencyKey) throws Exception {
+        MockHttpServletRequestBuilder request = requestWithContent(post("/api/users"), userRequest)
+                .header("Prefer", "respond-async");
+        return idempotencyKey != null ? request.header("Idempotency-Key", idempotencyKey) : request;
+    }
+
+    private UserCreationJobResponse awaitJob(String location) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            UserCreationJobResponse job = objectMapper.readValue(mvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray(), UserCreationJobResponse.class);
+            if (job.getResult() != null) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job " + location + " did not finish");
+    }
+}
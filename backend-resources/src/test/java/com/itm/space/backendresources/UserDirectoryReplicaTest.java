@@ -0,0 +1,89 @@
+package com.itm.space.backendresources;
+
+import com.itm.space.backendresources.api.response.UserResponse;
+import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.service.UserDirectoryReplica;
+import com.itm.space.backendresources.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// Closes the context afterwards: kept in the context cache, the replica would go on polling the stopped stub
+@DirtiesContext
+public class UserDirectoryReplicaTest extends BaseIntegrationTest {
+
+    private static KeycloakStub keycloakStub;
+    private static UUID moderatorId;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDirectoryReplica replica;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) throws IOException {
+        keycloakStub = KeycloakStub.start();
+        moderatorId = keycloakStub.addUser("moderator", "moderator@test.test");
+        registry.add("keycloak.auth-server-url", keycloakStub::getServerUrl);
+        registry.add("users.replica.enabled", () -> true);
+        registry.add("users.replica.poll-interval", () -> "50ms");
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        keycloakStub.close();
+    }
+
+    @Test
+    public void answerFromReplicaWithoutCallingKeycloak() throws InterruptedException {
+        await(replica::isFresh);
+        int adminRequests = keycloakStub.getAdminRequests();
+
+        UserResponse user = userService.getUserById(moderatorId);
+
+        Assertions.assertEquals("moderator@test.test", user.getEmail());
+        Assertions.assertEquals("Moderators", user.getGroups().get(0));
+        Assertions.assertEquals(adminRequests, keycloakStub.getAdminRequests());
+        Assertions.assertTrue(meterRegistry.get("users.replica.size").gauge().value() >= 1);
+        Assertions.assertTrue(meterRegistry.get("users.replica.staleness").timeGauge()
+                .value(TimeUnit.SECONDS) < 60);
+    }
+
+    @Test
+    public void applyAdminEvents() throws InterruptedException {
+        await(replica::isFresh);
+        UUID id = keycloakStub.addUser("changing", "before@test.test");
+        UUID deletedId = keycloakStub.addUser("deleted", "deleted@test.test");
+        keycloakStub.updateUser(id, "after@test.test");
+        keycloakStub.deleteUser(deletedId);
+
+        await(() -> replica.getIfFresh(id) != null);
+
+        Assertions.assertEquals("after@test.test", replica.getIfFresh(id).getEmail());
+        Assertions.assertNull(replica.getIfFresh(deletedId));
+        Assertions.assertThrows(BackendResourcesException.class, () -> userService.getUserById(deletedId));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Timed out waiting for the replica");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.itm.space.backendresources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Load scenarios against backend-resources over HTTP, with {@link KeycloakStub} standing in for Keycloak.
+ * Excluded from the regular build; run with {@code mvn test -Pload-tests}. Tunable via system properties:
+ * {@code load.rate} (requests per second), {@code load.duration}, {@code load.warmup},
+ * {@code load.keycloak-latency}, {@code load.keycloak-error-rate} and {@code load.target-url} to aim at an
+ * already running deployment that accepts bearer tokens. Reports are written to {@code target/load-reports}.
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class UserLoadTest {
+    private static final int RATE = Integer.getInteger("load.rate", 50);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT15S"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private static final Duration KEYCLOAK_LATENCY =
+            Duration.parse(System.getProperty("load.keycloak-latency", "PT0.02S"));
+    private static final double KEYCLOAK_ERROR_RATE =
+            Double.parseDouble(System.getProperty("load.keycloak-error-rate", "0"));
+    private static final int SEEDED_USERS = 1000;
+    private static final Path REPORTS = Path.of("target", "load-reports");
+
+    private static KeycloakStub keycloakStub;
+    private static final List<UUID> userIds = new ArrayList<>();
+    private static String moderatorToken;
+
+    private final LoadGenerator loadGenerator = new LoadGenerator();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", keycloakStub::getServerUrl);
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", keycloakStub::getIssuerUri);
+        registry.add("spring.security.oauth2.resourceserver.jwt.jwk-set-uri", keycloakStub::getJwkSetUri);
+    }
+
+    @BeforeAll
+    static void startKeycloak() throws IOException {
+        keycloakStub = KeycloakStub.start();
+        for (int i = 0; i < SEEDED_USERS; i++) {
+            userIds.add(keycloakStub.addUser("seeded-" + i, "seeded-" + i + "@test.test"));
+        }
+        keycloakStub.setAdminLatency(KEYCLOAK_LATENCY);
+        keycloakStub.failAdminCalls(KEYCLOAK_ERROR_RATE, 500);
+        moderatorToken = keycloakStub.issueToken("load-test-moderator", "MODERATOR");
+    }
+
+    @AfterAll
+    static void stopKeycloak() {
+        keycloakStub.close();
+    }
+
+    @Test
+    public void getById() throws IOException {
+        run("get-by-id", this::getRandomUser);
+    }
+
+    @Test
+    public void create() throws IOException {
+        run("create", this::createUser);
+    }
+
+    @Test
+    public void mixed() throws IOException {
+        run("mixed", () -> ThreadLocalRandom.current().nextInt(10) == 0 ? createUser() : getRandomUser());
+    }
+
+    private void run(String scenario, Supplier<HttpRequest> requests) throws IOException {
+        loadGenerator.run(scenario + "-warmup", RATE, WARMUP, requests);
+        LoadReport report = loadGenerator.run(scenario, RATE, DURATION, requests);
+        report.write(REPORTS);
+        log.info(report.summary());
+        Assertions.assertEquals(0, report.getFailures());
+        if (KEYCLOAK_ERROR_RATE == 0) {
+            // 503 is load shedding by the Keycloak bulkheads, anything else is a defect
+            Set<Integer> unexpected = new HashSet<>(report.getStatuses().keySet());
+            unexpected.removeAll(Set.of(200, 503));
+            Assertions.assertEquals(Set.of(), unexpected);
+        }
+    }
+
+    private HttpRequest getRandomUser() {
+        UUID id = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+        return request("/api/users/" + id).GET().build();
+    }
+
+    private HttpRequest createUser() {
+        String username = "load-" + UUID.randomUUID().toString().substring(0, 23);
+        Map<String, String> user = Map.of(
+                "username", username,
+                "email", username + "@test.test",
+                "password", "password",
+                "firstName", "Load",
+                "lastName", "Test");
+        try {
+            return request("/api/users")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(user)))
+                    .build();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        String target = System.getProperty("load.target-url", "http://localhost:" + port);
+        return HttpRequest.newBuilder(URI.create(target + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + moderatorToken);
+    }
+}
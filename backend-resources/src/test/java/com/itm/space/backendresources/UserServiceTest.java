@@ -1,8 +1,10 @@
 package com.itm.space.backendresources;
 
 import com.itm.space.backendresources.api.request.UserRequest;
+import com.itm.space.backendresources.api.response.UserCreationResult;
 import com.itm.space.backendresources.api.response.UserResponse;
 import com.itm.space.backendresources.exception.BackendResourcesException;
+import com.itm.space.backendresources.service.CachingUserService;
 import com.itm.space.backendresources.service.UserService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -10,8 +12,11 @@ import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.UsersResource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.test.context.support.WithMockUser;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 public class UserServiceTest extends BaseIntegrationTest {
@@ -19,6 +24,9 @@ public class UserServiceTest extends BaseIntegrationTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CachingUserService cachingUserService;
+
     @Autowired
     private Keycloak keycloak;
 
@@ -60,6 +68,7 @@ public class UserServiceTest extends BaseIntegrationTest {
         UsersResource users = keycloak.realm("ITM").users();
         String userId = users.search(userRequest.getUsername()).get(0).getId();
         users.get(userId).remove();
+        cachingUserService.evict(UUID.fromString(userId));
 
         Assertions.assertThrows(BackendResourcesException.class, () ->
             userService.getUserById(UUID.fromString(userId)));
@@ -74,4 +83,13 @@ public class UserServiceTest extends BaseIntegrationTest {
                 BackendResourcesException.class, () -> userService.getUserById(UUID.randomUUID()));
     }
 
+    @Test
+    @WithMockUser(roles = "MODERATOR")
+    public void createUsersReportsNullItem() {
+        List<UserCreationResult> results = userService.createUsers(Collections.singletonList(null));
+
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST.value(), results.get(0).getStatus());
+    }
+
 }
\ No newline at end of file